@@ -0,0 +1,58 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building and iterating AVL trees. One insert operation builds a whole tree
+ * of size keys, and one iterate operation walks all of it in order, so the
+ * per-key cost is the score divided by size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AVLTreeBenchmark {
+
+    @Param({"AVLTree", "ArrayAVLTree"})
+    public String implementation;
+
+    @Param({"SEQUENTIAL", "RANDOM", "ZIPF"})
+    public KeyDistribution distribution;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private int[] keys;
+    private Trees.Traversable tree;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        keys = distribution.keys(size, TreeBenchmarkState.SEED);
+        tree = Trees.as(TreeBenchmarkState.build(implementation, 0, keys), Trees.Traversable.class);
+    }
+
+    @Benchmark
+    public Object insert() throws Throwable {
+        return TreeBenchmarkState.build(implementation, 0, keys).unwrap();
+    }
+
+    @Benchmark
+    public long iterate() {
+        return tree.iterate();
+    }
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BTree and BPlusTree across orders. One insert operation builds a whole tree
+ * of size keys and one iterate operation walks all of it; contains is a
+ * single lookup of the next probe key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BTreeBenchmark {
+
+    @Param({"BTree", "BPlusTree"})
+    public String implementation;
+
+    @Param({"2", "8", "32", "128", "256"})
+    public int order;
+
+    @Param({"SEQUENTIAL", "RANDOM", "ZIPF"})
+    public KeyDistribution distribution;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private int[] keys;
+    private int[] probes;
+    private int nextProbe = 0;
+    private Trees.Searchable searchable;
+    private Trees.Traversable traversable;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        keys = distribution.keys(size, TreeBenchmarkState.SEED);
+        probes = distribution.probes(keys, TreeBenchmarkState.PROBES, TreeBenchmarkState.SEED + 1);
+        Trees.Tree tree = TreeBenchmarkState.build(implementation, order, keys);
+        searchable = Trees.as(tree, Trees.Searchable.class);
+        traversable = Trees.as(tree, Trees.Traversable.class);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object insert() throws Throwable {
+        return TreeBenchmarkState.build(implementation, order, keys).unwrap();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean contains() throws Throwable {
+        return searchable.contains(probes[nextProbe++ & (probes.length - 1)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long iterate() {
+        return traversable.iterate();
+    }
+}
@@ -0,0 +1,41 @@
+package benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. It takes the usual JMH command line, and adds
+ * the GC profiler when no profiler is given, so every run reports its
+ * allocation rate next to throughput and latency percentiles.
+ * ConcurrentBTreeBenchmark runs once per thread count (1, 2, 4 and all cores).
+ *
+ * <pre>
+ * mvn -B package
+ * java -jar benchmarks/target/benchmarks.jar BTreeBenchmark.contains -p size=1000000 -p order=32
+ * java -jar benchmarks/target/benchmarks.jar ConcurrentBTreeBenchmark -p writePercent=10
+ * </pre>
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(options);
+        if (options.getProfilers().isEmpty()) {
+            builder.addProfiler(GCProfiler.class);
+        }
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,88 @@
+package benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mixed lookups and inserts on one shared ConcurrentBTree. The nested classes
+ * run the same benchmark with 1, 2 and 4 threads and with one thread per
+ * available core, so a single run sweeps the thread count and shows how
+ * throughput scales. The tree is rebuilt before every iteration, so the
+ * inserts do not let it grow across iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class ConcurrentBTreeBenchmark {
+
+    @Threads(1)
+    public static class OneThread extends ConcurrentBTreeBenchmark {
+    }
+
+    @Threads(2)
+    public static class TwoThreads extends ConcurrentBTreeBenchmark {
+    }
+
+    @Threads(4)
+    public static class FourThreads extends ConcurrentBTreeBenchmark {
+    }
+
+    @Threads(Threads.MAX)
+    public static class AllCores extends ConcurrentBTreeBenchmark {
+    }
+
+    @Param({"8", "64"})
+    public int order;
+
+    @Param({"RANDOM", "ZIPF"})
+    public KeyDistribution distribution;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"0", "10", "50"})
+    public int writePercent;
+
+    private int[] keys;
+    private int[] probes;
+    private Trees.Searchable tree;
+
+    @Setup(Level.Trial)
+    public void setUpKeys() {
+        keys = distribution.keys(size, TreeBenchmarkState.SEED);
+        probes = distribution.probes(keys, TreeBenchmarkState.PROBES, TreeBenchmarkState.SEED + 1);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpTree() throws Throwable {
+        tree = Trees.as(TreeBenchmarkState.build("ConcurrentBTree", order, keys), Trees.Searchable.class);
+    }
+
+    @Benchmark
+    public boolean mixed() throws Throwable {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = probes[random.nextInt(probes.length)];
+        if (random.nextInt(100) < writePercent) {
+            tree.insert(key);
+            return true;
+        }
+        return tree.contains(key);
+    }
+}
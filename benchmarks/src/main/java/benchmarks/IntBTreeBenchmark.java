@@ -0,0 +1,64 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The primitive IntBTree against BTree&lt;Integer&gt; with the same keys, to
+ * show what boxing and generic key arrays cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntBTreeBenchmark {
+
+    @Param({"IntBTree", "BTree"})
+    public String implementation;
+
+    @Param({"8", "64"})
+    public int order;
+
+    @Param({"RANDOM", "ZIPF"})
+    public KeyDistribution distribution;
+
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    private int[] keys;
+    private int[] probes;
+    private int nextProbe = 0;
+    private Trees.Searchable tree;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        keys = distribution.keys(size, TreeBenchmarkState.SEED);
+        probes = distribution.probes(keys, TreeBenchmarkState.PROBES, TreeBenchmarkState.SEED + 1);
+        tree = Trees.as(TreeBenchmarkState.build(implementation, order, keys), Trees.Searchable.class);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object insert() throws Throwable {
+        return TreeBenchmarkState.build(implementation, order, keys).unwrap();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean contains() throws Throwable {
+        return tree.contains(probes[nextProbe++ & (probes.length - 1)]);
+    }
+}
@@ -0,0 +1,100 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * Key streams for the benchmarks. Every stream is generated from a fixed
+ * seed, so all runs and all tree implementations see the same keys.
+ */
+public enum KeyDistribution {
+
+    /** 0, 1, 2, ... in ascending order. */
+    SEQUENTIAL {
+        @Override
+        public int[] keys(int count, long seed) {
+            int[] keys = new int[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = i;
+            }
+            return keys;
+        }
+    },
+
+    /** Uniformly random ints. */
+    RANDOM {
+        @Override
+        public int[] keys(int count, long seed) {
+            Random random = new Random(seed);
+            int[] keys = new int[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = random.nextInt();
+            }
+            return keys;
+        }
+    },
+
+    /**
+     * Zipfian ranks over count distinct keys with skew 0.99, as in YCSB, so a
+     * few hot keys repeat very often. Ranks are scattered over the int range
+     * so that the hot keys are not neighbours in the tree.
+     */
+    ZIPF {
+        @Override
+        public int[] keys(int count, long seed) {
+            return zipf(count, count, seed);
+        }
+
+        @Override
+        public int[] probes(int[] keys, int count, long seed) {
+            return zipf(keys.length, count, seed);
+        }
+    };
+
+    private static final double ZIPF_THETA = 0.99;
+
+    /**
+     * @return count keys of this distribution.
+     */
+    public abstract int[] keys(int count, long seed);
+
+    /**
+     * @return count lookup keys. They are picked at random from the inserted
+     *         keys, or for ZIPF drawn from the same skewed distribution.
+     */
+    public int[] probes(int[] keys, int count, long seed) {
+        Random random = new Random(seed);
+        int[] probes = new int[count];
+        for (int i = 0; i < count; i++) {
+            probes[i] = keys[random.nextInt(keys.length)];
+        }
+        return probes;
+    }
+
+    // Gray et al., "Quickly generating billion-record synthetic databases"
+    private static int[] zipf(int distinct, int count, long seed) {
+        double zetaN = 0;
+        for (int i = 1; i <= distinct; i++) {
+            zetaN += 1 / Math.pow(i, ZIPF_THETA);
+        }
+        double zeta2 = 1 + 1 / Math.pow(2, ZIPF_THETA);
+        double alpha = 1 / (1 - ZIPF_THETA);
+        double eta = (1 - Math.pow(2.0 / distinct, 1 - ZIPF_THETA)) / (1 - zeta2 / zetaN);
+
+        Random random = new Random(seed);
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            double u = random.nextDouble();
+            double uz = u * zetaN;
+            long rank;
+            if (uz < 1) {
+                rank = 0;
+            } else if (uz < 1 + Math.pow(0.5, ZIPF_THETA)) {
+                rank = 1;
+            } else {
+                rank = Math.min(distinct - 1, (long) (distinct * Math.pow(eta * u - eta + 1, alpha)));
+            }
+            keys[i] = (int) (rank * 0x9E3779B1L);
+        }
+        return keys;
+    }
+}
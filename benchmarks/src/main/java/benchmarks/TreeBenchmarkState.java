@@ -0,0 +1,23 @@
+package benchmarks;
+
+/**
+ * Keys and lookup probes shared by the single-threaded tree benchmarks.
+ */
+final class TreeBenchmarkState {
+
+    static final long SEED = 42;
+
+    // Probes are read cyclically; a power of two, so wrapping is a mask
+    static final int PROBES = 1 << 20;
+
+    private TreeBenchmarkState() {
+    }
+
+    static Trees.Tree build(String implementation, int order, int[] keys) throws Throwable {
+        Trees.Tree tree = Trees.create(implementation, order);
+        for (int key : keys) {
+            tree.insert(key);
+        }
+        return tree;
+    }
+}
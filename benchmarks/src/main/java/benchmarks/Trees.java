@@ -0,0 +1,247 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+
+/**
+ * Access to the trees under benchmark.
+ *
+ * The trees are in the default package, which code in a named package cannot
+ * import, and JMH does not accept benchmarks in the default package. The trees
+ * are therefore loaded by name and called through method handles. Each handle
+ * is a static final constant, so the JIT inlines the call as if it were
+ * direct.
+ */
+final class Trees {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    private Trees() {
+    }
+
+    /**
+     * A tree of int keys, whatever its key type.
+     */
+    interface Tree {
+        /**
+         * @return the tree itself.
+         */
+        Object unwrap();
+
+        void insert(int key) throws Throwable;
+    }
+
+    /**
+     * A tree that answers membership queries.
+     */
+    interface Searchable extends Tree {
+        boolean contains(int key) throws Throwable;
+    }
+
+    /**
+     * A tree that can be walked in key order.
+     */
+    interface Traversable extends Tree {
+        /**
+         * @return the sum of the keys, in iteration order.
+         */
+        long iterate();
+    }
+
+    /**
+     * @param implementation
+     *            the simple name of the tree class.
+     * @param order
+     *            the order of a B-Tree, ignored by the other trees.
+     */
+    static Tree create(String implementation, int order) throws Throwable {
+        switch (implementation) {
+            case "AVLTree":
+                return new AVL(newInstance(implementation));
+            case "ArrayAVLTree":
+                return new ArrayAVL(newInstance(implementation));
+            case "BTree":
+            case "BPlusTree":
+                return new BTree(newInstance(implementation, order));
+            case "IntBTree":
+                return new IntBTree(newInstance(implementation, order));
+            case "ConcurrentBTree":
+                return new ConcurrentBTree(newInstance(implementation, order));
+            default:
+                throw new IllegalArgumentException("Unknown tree: " + implementation);
+        }
+    }
+
+    /**
+     * @return the tree as one with the given capability.
+     * @throws IllegalArgumentException
+     *             if the tree does not have it, which a benchmark should only
+     *             see if it is run with an implementation outside its @Param
+     *             list.
+     */
+    static <T extends Tree> T as(Tree tree, Class<T> capability) {
+        if (!capability.isInstance(tree)) {
+            throw new IllegalArgumentException(tree.unwrap().getClass().getSimpleName() + " is not "
+                    + capability.getSimpleName());
+        }
+        return capability.cast(tree);
+    }
+
+    private abstract static class Handle implements Tree {
+        final Object tree;
+
+        Handle(Object tree) {
+            this.tree = tree;
+        }
+
+        @Override
+        public Object unwrap() {
+            return tree;
+        }
+    }
+
+    // Sum the keys of an Iterable tree of Integers, unboxed if it can be
+    private static long sum(Object tree) {
+        Iterator<?> iterator = ((Iterable<?>) tree).iterator();
+        long sum = 0;
+        if (iterator instanceof PrimitiveIterator.OfInt) {
+            PrimitiveIterator.OfInt ints = (PrimitiveIterator.OfInt) iterator;
+            while (ints.hasNext()) {
+                sum += ints.nextInt();
+            }
+        } else {
+            while (iterator.hasNext()) {
+                sum += (Integer) iterator.next();
+            }
+        }
+        return sum;
+    }
+
+    private static final class AVL extends Handle implements Traversable {
+        private static final MethodHandle INSERT = method("AVLTree", "insert", void.class, int.class);
+
+        AVL(Object tree) {
+            super(tree);
+        }
+
+        @Override
+        public void insert(int key) throws Throwable {
+            INSERT.invokeExact(tree, key);
+        }
+
+        @Override
+        public long iterate() {
+            return sum(tree);
+        }
+    }
+
+    private static final class ArrayAVL extends Handle implements Searchable, Traversable {
+        private static final MethodHandle INSERT = method("ArrayAVLTree", "insert", void.class, int.class);
+        private static final MethodHandle CONTAINS = method("ArrayAVLTree", "contains", boolean.class, int.class);
+
+        ArrayAVL(Object tree) {
+            super(tree);
+        }
+
+        @Override
+        public void insert(int key) throws Throwable {
+            INSERT.invokeExact(tree, key);
+        }
+
+        @Override
+        public boolean contains(int key) throws Throwable {
+            return (boolean) CONTAINS.invokeExact(tree, key);
+        }
+
+        @Override
+        public long iterate() {
+            return sum(tree);
+        }
+    }
+
+    // BTree<Integer> and its subclasses
+    private static final class BTree extends Handle implements Searchable, Traversable {
+        private static final MethodHandle INSERT = method("BTree", "insert", void.class, Comparable.class);
+        private static final MethodHandle CONTAINS = method("BTree", "contains", boolean.class, Comparable.class);
+
+        BTree(Object tree) {
+            super(tree);
+        }
+
+        @Override
+        public void insert(int key) throws Throwable {
+            INSERT.invokeExact(tree, (Comparable<?>) key);
+        }
+
+        @Override
+        public boolean contains(int key) throws Throwable {
+            return (boolean) CONTAINS.invokeExact(tree, (Comparable<?>) key);
+        }
+
+        @Override
+        public long iterate() {
+            return sum(tree);
+        }
+    }
+
+    private static final class IntBTree extends Handle implements Searchable {
+        private static final MethodHandle INSERT = method("IntBTree", "insert", void.class, int.class);
+        private static final MethodHandle CONTAINS = method("IntBTree", "contains", boolean.class, int.class);
+
+        IntBTree(Object tree) {
+            super(tree);
+        }
+
+        @Override
+        public void insert(int key) throws Throwable {
+            INSERT.invokeExact(tree, key);
+        }
+
+        @Override
+        public boolean contains(int key) throws Throwable {
+            return (boolean) CONTAINS.invokeExact(tree, key);
+        }
+    }
+
+    private static final class ConcurrentBTree extends Handle implements Searchable {
+        private static final MethodHandle INSERT = method("ConcurrentBTree", "insert", void.class, Comparable.class);
+        private static final MethodHandle CONTAINS = method("ConcurrentBTree", "contains", boolean.class, Comparable.class);
+
+        ConcurrentBTree(Object tree) {
+            super(tree);
+        }
+
+        @Override
+        public void insert(int key) throws Throwable {
+            INSERT.invokeExact(tree, (Comparable<?>) key);
+        }
+
+        @Override
+        public boolean contains(int key) throws Throwable {
+            return (boolean) CONTAINS.invokeExact(tree, (Comparable<?>) key);
+        }
+    }
+
+    private static Object newInstance(String className, Object... arguments) throws Throwable {
+        Class<?>[] types = new Class<?>[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            types[i] = int.class;
+        }
+        MethodHandle constructor = LOOKUP.findConstructor(Class.forName(className), MethodType.methodType(void.class, types));
+        return constructor.invokeWithArguments(arguments);
+    }
+
+    // A virtual method, with its receiver type erased to Object
+    private static MethodHandle method(String className, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            MethodHandle handle = LOOKUP.findVirtual(Class.forName(className), name,
+                    MethodType.methodType(returnType, parameters));
+            return handle.asType(handle.type().changeParameterType(0, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -1,8 +1,16 @@
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.Comparator;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class AVLTree implements Iterable<Integer> {
     protected class Node {
@@ -19,24 +27,88 @@ public class AVLTree implements Iterable<Integer> {
     
     protected Node root;
     
+    // Counters, only kept while statistics are enabled
+    protected AVLTreeStatistics stats = null;
+    
+    // Set operations fork their halves while the other tree is this high
+    private static final int PARALLEL_HEIGHT = 12;
+    
     //You may add fields here.
     
     public AVLTree() {
     	this.root = null;
     }
     
+    /**
+     * Build a tree from values in ascending order in O(n). The middle value
+     * of every range becomes the root of its subtree, so the tree is as
+     * balanced as possible and no rotation is needed.
+     */
+    public static AVLTree fromSorted(int[] values) {
+        return fromSorted(values, values.length);
+    }
+    
+    /**
+     * Build a tree from the values of an iterator in ascending order in O(n).
+     */
+    public static AVLTree fromSorted(PrimitiveIterator.OfInt values) {
+        int[] buffer = new int[16];
+        int length = 0;
+        while (values.hasNext()) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, 2 * length);
+            }
+            buffer[length++] = values.nextInt();
+        }
+        return fromSorted(buffer, length);
+    }
+    
+    private static AVLTree fromSorted(int[] values, int length) {
+        for (int i = 1; i < length; i++) {
+            if (values[i - 1] > values[i]) {
+                throw new IllegalArgumentException("Values are not in ascending order: " + values[i] + " after " + values[i - 1]);
+            }
+        }
+        
+        AVLTree tree = new AVLTree();
+        tree.root = tree.buildBalanced(values, 0, length - 1, null);
+        return tree;
+    }
+    
+    private Node buildBalanced(int[] values, int low, int high, Node parent) {
+        if (low > high) {
+            return null;
+        }
+        
+        int mid = (low + high) >>> 1;
+        Node node = newNode(values[mid]);
+        node.parent = parent;
+        node.left = buildBalanced(values, low, mid - 1, node);
+        node.right = buildBalanced(values, mid + 1, high, node);
+        updateHeight(node);
+        
+        return node;
+    }
+    
     //You may add lines of code to both "insert" and "insertNode" functions.
 	public void insert(int value) {
+    	if (stats != null) {
+    	    stats.inserts++;
+    	}
     	root = insertNode(this.root,value);
     }
 	
 	protected Node insertNode(Node node, int value) {
 		/* 1.  Perform the normal BST search and insert */
         if (node == null) {
-        	Node inserted_node = new Node(value);
+        	Node inserted_node = newNode(value);
+        	nodeInserted(inserted_node);
             return inserted_node;
         }
 
+        if (stats != null) {
+            stats.comparisons++;
+        }
         if (value < node.value) {
             node.left  = insertNode(node.left, value);
             node.left.parent = node;
@@ -47,7 +119,7 @@ public class AVLTree implements Iterable<Integer> {
         }
             
         /* 2. Update height of this ancestor node */
-        node.height = Math.max(getNodeHeight(node.left), getNodeHeight(node.right)) + 1;
+        updateHeight(node);
 
         /* 3. Get the balance factor of this ancestor node to check whether
         this node became unbalanced */
@@ -58,23 +130,496 @@ public class AVLTree implements Iterable<Integer> {
         
         // Left Cases            
         if (balance > 1) {
-            if (value > node.left.value) {
+            ImbalanceCases imbalance = ImbalanceCases.LEFT_LEFT;
+            if (value >= node.left.value) {
                 node.left = leftRotate(node.left);
+                imbalance = ImbalanceCases.LEFT_RIGHT;
             }
             
             node = rightRotate(node);
+            recordRebalance(node, imbalance);
         } // Right Cases
         else if (balance < -1) {
+            ImbalanceCases imbalance = ImbalanceCases.RIGHT_RIGHT;
             if (value < node.right.value) {
                 node.right = rightRotate(node.right);
+                imbalance = ImbalanceCases.RIGHT_LEFT;
             }
             
             node = leftRotate(node);
+            recordRebalance(node, imbalance);
         }
 
         return node;
     }
     
+    /**
+     * Remove one occurrence of the value from the tree, rebalancing on the
+     * way back up.
+     *
+     * @return true if the value was in the tree.
+     */
+    public boolean delete(int value) {
+        if (getNode(value) == null) {
+            return false;
+        }
+        
+        if (stats != null) {
+            stats.deletes++;
+        }
+        root = deleteNode(this.root, value);
+        if (root != null) {
+            root.parent = null;
+        }
+        return true;
+    }
+    
+    protected Node deleteNode(Node node, int value) {
+        /* 1. Perform the normal BST delete */
+        if (stats != null) {
+            stats.comparisons++;
+        }
+        if (value < node.value) {
+            node.left = deleteNode(node.left, value);
+            if (node.left != null) {
+                node.left.parent = node;
+            }
+        }
+        else if (value > node.value) {
+            node.right = deleteNode(node.right, value);
+            if (node.right != null) {
+                node.right.parent = node;
+            }
+        }
+        else if (node.left == null || node.right == null) {
+            // Replace the node by its only child, if any
+            Node child = (node.left != null) ? node.left : node.right;
+            if (child != null) {
+                child.parent = node.parent;
+            }
+            node.parent = null;
+            return child;
+        }
+        else {
+            // Take the value of the in-order successor and delete that instead
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            moveValue(successor, node);
+            node.right = deleteNode(node.right, successor.value);
+            if (node.right != null) {
+                node.right.parent = node;
+            }
+        }
+        
+        /* 2. Update height of this ancestor node */
+        updateHeight(node);
+        
+        /* 3. Rebalance, choosing the case by the balance of the higher child */
+        int balance = getBalanceFactor(node);
+        
+        // Left Cases
+        if (balance > 1) {
+            ImbalanceCases imbalance = ImbalanceCases.LEFT_LEFT;
+            if (getBalanceFactor(node.left) < 0) {
+                node.left = leftRotate(node.left);
+                imbalance = ImbalanceCases.LEFT_RIGHT;
+            }
+            
+            node = rightRotate(node);
+            recordRebalance(node, imbalance);
+        } // Right Cases
+        else if (balance < -1) {
+            ImbalanceCases imbalance = ImbalanceCases.RIGHT_RIGHT;
+            if (getBalanceFactor(node.right) > 0) {
+                node.right = rightRotate(node.right);
+                imbalance = ImbalanceCases.RIGHT_LEFT;
+            }
+            
+            node = leftRotate(node);
+            recordRebalance(node, imbalance);
+        }
+        
+        return node;
+    }
+    
+    protected Node getNode(int value) {
+        Node node = root;
+        while (node != null && node.value != value) {
+            if (stats != null) {
+                stats.comparisons++;
+            }
+            node = (value < node.value) ? node.left : node.right;
+        }
+        return node;
+    }
+    
+    /**
+     * Move every value of greater to this tree in O(log n). No value of
+     * greater may be smaller than the maximum of this tree. greater is left
+     * empty.
+     */
+    public void join(AVLTree greater) {
+        checkOperand(greater);
+        if (root != null && greater.root != null && max(root).value > min(greater.root).value) {
+            throw new IllegalArgumentException("The joined tree has values smaller than the maximum of this tree");
+        }
+        
+        root = detach(join(root, greater.root));
+        greater.root = null;
+        bulkModified();
+        greater.bulkModified();
+    }
+    
+    /**
+     * Split the tree in O(log n). This tree keeps the values smaller than
+     * pivot, and the others are moved to the returned tree, which has the
+     * same class as this one.
+     */
+    public AVLTree split(int pivot) {
+        Split parts = split(root, pivot);
+        AVLTree greater = newTree();
+        greater.root = detach(join(parts.equal, parts.greater));
+        root = detach(parts.less);
+        bulkModified();
+        return greater;
+    }
+    
+    /**
+     * Add the values of other to this tree, except values this tree already
+     * holds: for those, this tree keeps its own copies and the copies in
+     * other are dropped. The join-based algorithm costs O(m log(n/m + 1))
+     * for trees of sizes m <= n, and works on the two halves of each step in
+     * parallel on the common fork-join pool. other is left empty, and must
+     * have the same class as this tree.
+     */
+    public void union(AVLTree other) {
+        combine(SetOperator.UNION, other);
+    }
+    
+    /**
+     * Keep only the values that other holds too, with this tree's copies of
+     * them. Costs and consumes other like {@link #union}.
+     */
+    public void intersection(AVLTree other) {
+        combine(SetOperator.INTERSECTION, other);
+    }
+    
+    /**
+     * Remove the values that other holds. Costs and consumes other like
+     * {@link #union}.
+     */
+    public void difference(AVLTree other) {
+        combine(SetOperator.DIFFERENCE, other);
+    }
+    
+    /**
+     * Create an empty tree of the same class, for split.
+     */
+    protected AVLTree newTree() {
+        return new AVLTree();
+    }
+    
+    /**
+     * Called after join, split or a set operation rebuilt the tree without
+     * going through insertNode and deleteNode.
+     */
+    protected void bulkModified() {
+    }
+    
+    private enum SetOperator {
+        UNION, INTERSECTION, DIFFERENCE
+    }
+    
+    // The parts of a subtree below, equal to and above a pivot
+    private final class Split {
+        private Node less;
+        private Node equal;
+        private Node greater;
+    }
+    
+    private final class SetOperationTask extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 1L;
+        
+        private final SetOperator operator;
+        private final Node a;
+        private final Node b;
+        
+        private SetOperationTask(SetOperator operator, Node a, Node b) {
+            this.operator = operator;
+            this.a = a;
+            this.b = b;
+        }
+        
+        @Override
+        protected Node compute() {
+            return combine(operator, a, b);
+        }
+    }
+    
+    private void combine(SetOperator operator, AVLTree other) {
+        checkOperand(other);
+        root = detach(combine(operator, root, other.root));
+        other.root = null;
+        bulkModified();
+        other.bulkModified();
+    }
+    
+    private void checkOperand(AVLTree other) {
+        if (other == this) {
+            throw new IllegalArgumentException("A tree cannot be combined with itself");
+        }
+        if (other.getClass() != getClass()) {
+            throw new IllegalArgumentException("Cannot combine a " + getClass().getName() + " with a " + other.getClass().getName());
+        }
+    }
+    
+    /*
+     * Split a by the root of b, combine the halves with the subtrees of b,
+     * and join the results around a's copies of b's value, or the root of
+     * b, or neither.
+     */
+    private Node combine(SetOperator operator, Node a, Node b) {
+        if (a == null) {
+            return operator == SetOperator.UNION ? b : null;
+        }
+        if (b == null) {
+            return operator == SetOperator.INTERSECTION ? null : a;
+        }
+        
+        Node bLeft = b.left;
+        Node bRight = b.right;
+        Split parts = split(a, b.value);
+        if (operator == SetOperator.UNION && parts.equal != null) {
+            // a holds the value already, drop b's other copies of it too.
+            // This costs the height of b's subtrees, O(m) over all of b.
+            bLeft = split(bLeft, b.value).less;
+            bRight = split(bRight, b.value).greater;
+        }
+        Node left;
+        Node right;
+        if (getNodeHeight(b) >= PARALLEL_HEIGHT) {
+            SetOperationTask lower = new SetOperationTask(operator, parts.less, bLeft);
+            lower.fork();
+            right = combine(operator, parts.greater, bRight);
+            left = lower.join();
+        } else {
+            left = combine(operator, parts.less, bLeft);
+            right = combine(operator, parts.greater, bRight);
+        }
+        
+        if (operator == SetOperator.DIFFERENCE || (operator == SetOperator.INTERSECTION && parts.equal == null)) {
+            return join(left, right);
+        }
+        if (parts.equal != null) {
+            return join(join(left, parts.equal), right);
+        }
+        return join(left, b, right);
+    }
+    
+    /*
+     * Split a subtree into the values below, equal to and above pivot, in
+     * O(log n) plus the number of values equal to pivot.
+     */
+    private Split split(Node node, int pivot) {
+        if (node == null) {
+            return new Split();
+        }
+        
+        Node left = node.left;
+        Node right = node.right;
+        if (pivot < node.value) {
+            Split parts = split(left, pivot);
+            parts.greater = join(parts.greater, node, right);
+            return parts;
+        }
+        if (pivot > node.value) {
+            Split parts = split(right, pivot);
+            parts.less = join(left, node, parts.less);
+            return parts;
+        }
+        
+        // Copies of the pivot may be on both sides
+        Split parts = split(left, pivot);
+        Split upper = split(right, pivot);
+        parts.equal = join(parts.equal, node, upper.equal);
+        parts.greater = upper.greater;
+        return parts;
+    }
+    
+    // Join two subtrees, all of whose values are in order, around the maximum of the first
+    private Node join(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        Split parts = splitLast(left);
+        return join(parts.less, parts.equal, right);
+    }
+    
+    // Take the maximum node out of a subtree, into equal, and the rest into less
+    private Split splitLast(Node node) {
+        if (node.right == null) {
+            Split parts = new Split();
+            parts.less = node.left;
+            parts.equal = node;
+            return parts;
+        }
+        Split parts = splitLast(node.right);
+        parts.less = join(node.left, node, parts.less);
+        return parts;
+    }
+    
+    /*
+     * Join two subtrees around a middle node, all in order, in
+     * O(|height(left) - height(right)| + 1): walk down the spine of the higher
+     * subtree to a node as high as the lower one, and hang the middle node
+     * there, rotating back up as insertNode does.
+     */
+    private Node join(Node left, Node middle, Node right) {
+        if (getNodeHeight(left) > getNodeHeight(right) + 1) {
+            return joinRight(left, middle, right);
+        }
+        if (getNodeHeight(right) > getNodeHeight(left) + 1) {
+            return joinLeft(left, middle, right);
+        }
+        return attach(left, middle, right);
+    }
+    
+    private Node joinRight(Node left, Node middle, Node right) {
+        Node spine = left.right;
+        if (getNodeHeight(spine) <= getNodeHeight(right) + 1) {
+            Node joined = attach(spine, middle, right);
+            if (getNodeHeight(joined) <= getNodeHeight(left.left) + 1) {
+                return attach(left.left, left, joined);
+            }
+            return leftRotate(attach(left.left, left, rightRotate(joined)));
+        }
+        
+        Node joined = joinRight(spine, middle, right);
+        attach(left.left, left, joined);
+        return getNodeHeight(joined) <= getNodeHeight(left.left) + 1 ? left : leftRotate(left);
+    }
+    
+    private Node joinLeft(Node left, Node middle, Node right) {
+        Node spine = right.left;
+        if (getNodeHeight(spine) <= getNodeHeight(left) + 1) {
+            Node joined = attach(left, middle, spine);
+            if (getNodeHeight(joined) <= getNodeHeight(right.right) + 1) {
+                return attach(joined, right, right.right);
+            }
+            return rightRotate(attach(leftRotate(joined), right, right.right));
+        }
+        
+        Node joined = joinLeft(left, middle, spine);
+        attach(joined, right, right.right);
+        return getNodeHeight(joined) <= getNodeHeight(right.right) + 1 ? right : rightRotate(right);
+    }
+    
+    private Node attach(Node left, Node node, Node right) {
+        node.left = left;
+        node.right = right;
+        if (left != null) {
+            left.parent = node;
+        }
+        if (right != null) {
+            right.parent = node;
+        }
+        updateHeight(node);
+        return node;
+    }
+    
+    private Node detach(Node node) {
+        if (node != null) {
+            node.parent = null;
+        }
+        return node;
+    }
+    
+    private Node min(Node node) {
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+    
+    private Node max(Node node) {
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node;
+    }
+    
+    /**
+     * Start counting inserts, deletes, comparisons and rotations, from zero.
+     * Counting costs a null check per step while it is disabled.
+     */
+    public void enableStatistics() {
+        stats = new AVLTreeStatistics();
+    }
+    
+    public void disableStatistics() {
+        stats = null;
+    }
+    
+    /**
+     * @return a copy of the counters and the current height, or null if
+     *         statistics are not enabled.
+     */
+    public AVLTreeStatistics getStatistics() {
+        return stats == null ? null : stats.snapshot(getNodeHeight(root));
+    }
+    
+    // Count and report a fixed imbalance, then let subclasses see it
+    private void recordRebalance(Node subtreeRoot, ImbalanceCases imbalance) {
+        if (stats != null) {
+            stats.rotations[imbalance.ordinal()]++;
+        }
+        TreeEvents.avlRebalance(imbalance, subtreeRoot.height);
+        rebalanced(subtreeRoot, imbalance);
+    }
+    
+    /**
+     * Create a node for a new value. Subclasses override this to store more
+     * per node, and updateHeight to maintain it.
+     */
+    protected Node newNode(int value) {
+        return new Node(value);
+    }
+    
+    /**
+     * Copy what a node holds to the node that replaces it when deleteNode
+     * removes a node with two children.
+     */
+    protected void moveValue(Node from, Node to) {
+        to.value = from.value;
+    }
+    
+    /**
+     * @return how many copies of its value a node stands for.
+     */
+    protected int getCount(Node node) {
+        return 1;
+    }
+    
+    /**
+     * Called by insertNode with the leaf it created.
+     */
+    protected void nodeInserted(Node node) {
+    }
+    
+    /**
+     * Called after an unbalanced subtree was fixed by rotations.
+     *
+     * @param subtreeRoot - the new root of the rotated subtree
+     * @param imbalance - the case that was fixed
+     */
+    protected void rebalanced(Node subtreeRoot, ImbalanceCases imbalance) {
+    }
+    
     protected Node rightRotate(Node y) {
         Node x = y.left;
         Node T2 = x.right;
@@ -91,8 +636,8 @@ public class AVLTree implements Iterable<Integer> {
         x.parent = y.parent;
         y.parent = x;
         
-        updateHeight(x);
         updateHeight(y);
+        updateHeight(x);
 
         // Return new root
         return x;
@@ -129,7 +674,7 @@ public class AVLTree implements Iterable<Integer> {
         return (node==null) ? 0 : node.height;
     }
     
-    private void updateHeight(Node n) {
+    protected void updateHeight(Node n) {
         n.height = Math.max(getNodeHeight(n.left), getNodeHeight(n.right)) + 1;
     }
    
@@ -208,79 +753,228 @@ public class AVLTree implements Iterable<Integer> {
         }
     }
     
-    private abstract class BaseBSTIterator implements Iterator<Integer> {
-        private List<Integer> values;
-        private int index;
+    /**
+     * Base of the lazy traversals. The pending nodes are kept on an explicit
+     * stack, so an iterator uses O(height) memory and produces its first value
+     * without walking the whole tree. The tree must not be modified while
+     * an iterator is in use.
+     */
+    private abstract class BaseBSTIterator implements PrimitiveIterator.OfInt {
+        protected final ArrayDeque<Node> stack;
+
         public BaseBSTIterator(Node root) {
-            values = new ArrayList<>();
-            addValues(root);
-            
-            index = 0;
+            stack = new ArrayDeque<>(root == null ? 1 : root.height + 1);
         }
         
         @Override
         public boolean hasNext() {
-            return index < values.size();
+            return !stack.isEmpty();
         }
 
         @Override
-        public Integer next() {
+        public int nextInt() {
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
             
-            return values.get(index++);
+            return advance().value;
         }
         
-        protected void addNode(Node node) {
-            values.add(node.value);
-        }
-        
-        abstract protected void addValues(Node node);
+        /**
+         * Pops the next node of the traversal and pushes its successors.
+         */
+        abstract protected Node advance();
     }
     
     public class InorderIterator extends BaseBSTIterator {
         public InorderIterator(Node root) {
             super(root);
+            pushLeftPath(root);
         }
 
         @Override
-        protected void addValues(Node node) {
-            if (node != null) {
-                addValues(node.left);
-                addNode(node);
-                addValues(node.right);
+        protected Node advance() {
+            Node node = stack.pop();
+            pushLeftPath(node.right);
+            return node;
+        }
+        
+        private void pushLeftPath(Node node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
             }
-        }    
-      
+        }
     }
     
     public class PreorderIterator extends BaseBSTIterator {
 
         public PreorderIterator(Node root) {
             super(root);
+            if (root != null) {
+                stack.push(root);
+            }
         }
 
         @Override
-        protected void addValues(AVLTree.Node node) {
-            if (node != null) {
-                addNode(node);
-                addValues(node.left);
-                addValues(node.right);
+        protected Node advance() {
+            Node node = stack.pop();
+            if (node.right != null) {
+                stack.push(node.right);
             }
-        }        
+            if (node.left != null) {
+                stack.push(node.left);
+            }
+            return node;
+        }
     }
     
     @Override
-    public Iterator<Integer> iterator() {
+    public PrimitiveIterator.OfInt iterator() {
         return getInorderIterator();
     }
     
-    public Iterator<Integer> getInorderIterator() {
+    public PrimitiveIterator.OfInt getInorderIterator() {
         return new InorderIterator(this.root);
     }
     
-    public Iterator<Integer> getPreorderIterator() {
+    public PrimitiveIterator.OfInt getPreorderIterator() {
         return new PreorderIterator(this.root);
     }
+    
+    /**
+     * In-order spliterator over the range [current, fence) of the tree. It
+     * walks from a node to its successor by the parent pointers, and splits
+     * at splitRoot, the root of the subtree that makes up the range (after
+     * one split the range may also start with that subtree's parent). The
+     * size is estimated from the height. A spliterator only splits until it
+     * starts returning values.
+     */
+    protected class SubtreeSpliterator implements Spliterator.OfInt {
+        private Node current;
+        private final Node fence;
+        private Node splitRoot;
+        private long estimate;
+        
+        // Copies of the last value that are still to be returned
+        private int value;
+        private int copies = 0;
+
+        protected SubtreeSpliterator(Node current, Node fence, Node splitRoot) {
+            this.current = current;
+            this.fence = fence;
+            this.splitRoot = splitRoot;
+            this.estimate = estimate(splitRoot);
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            Node s = splitRoot;
+            if (s == null || s.left == null) {
+                return null;
+            }
+            
+            // The lower half ends before s, this one keeps s and its right subtree
+            Spliterator.OfInt lower = new SubtreeSpliterator(current, s, s.left);
+            current = s;
+            splitRoot = s.right;
+            estimate = estimate(s.right) + 1;
+            return lower;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (copies == 0) {
+                if (current == fence) {
+                    return false;
+                }
+                splitRoot = null;
+                value = current.value;
+                copies = getCount(current);
+                current = successor(current);
+            }
+            copies--;
+            action.accept(value);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            splitRoot = null;
+            for (; copies > 0; copies--) {
+                action.accept(value);
+            }
+            while (current != fence) {
+                int value = current.value;
+                int count = getCount(current);
+                current = successor(current);
+                for (int i = 0; i < count; i++) {
+                    action.accept(value);
+                }
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | NONNULL;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+
+        // A subtree of height h holds at most 2^h - 1 values, and an AVL
+        // subtree at least about 1.6^h; take the geometric mean of the two
+        private long estimate(Node node) {
+            int height = getNodeHeight(node);
+            return height == 0 ? 0 : Math.max(1, (long) Math.pow(1.8, height));
+        }
+    }
+    
+    // The next node in order, or null after the maximum
+    private Node successor(Node node) {
+        if (node.right != null) {
+            node = node.right;
+            while (node.left != null) {
+                node = node.left;
+            }
+            return node;
+        }
+        while (node.parent != null && node == node.parent.right) {
+            node = node.parent;
+        }
+        return node.parent;
+    }
+    
+    /**
+     * Spliterator over the values in ascending order, which splits at subtree
+     * boundaries, so parallel streams divide the tree between the workers.
+     */
+    @Override
+    public Spliterator.OfInt spliterator() {
+        Node first = root;
+        while (first != null && first.left != null) {
+            first = first.left;
+        }
+        return new SubtreeSpliterator(first, null, root);
+    }
+    
+    /**
+     * @return a sequential stream of the values in ascending order. Call
+     *         parallel() on it to spread the work over the common fork-join
+     *         pool. The tree must not be modified while the stream runs.
+     */
+    public IntStream intStream() {
+        return StreamSupport.intStream(spliterator(), false);
+    }
+    
+    public Stream<Integer> stream() {
+        return intStream().boxed();
+    }
 }
@@ -0,0 +1,76 @@
+/**
+ * Structural counters of an {@link AVLTree}. A tree only counts while its
+ * statistics are enabled; getStatistics() returns an immutable copy of the
+ * counters together with the current height.
+ */
+public final class AVLTreeStatistics {
+
+    long inserts = 0;
+    long deletes = 0;
+    long comparisons = 0;
+    final long[] rotations = new long[ImbalanceCases.values().length];
+    private int height = 0;
+
+    AVLTreeStatistics() {
+    }
+
+    AVLTreeStatistics snapshot(int height) {
+        AVLTreeStatistics copy = new AVLTreeStatistics();
+        copy.inserts = inserts;
+        copy.deletes = deletes;
+        copy.comparisons = comparisons;
+        System.arraycopy(rotations, 0, copy.rotations, 0, rotations.length);
+        copy.height = height;
+        return copy;
+    }
+
+    public long getInserts() {
+        return inserts;
+    }
+
+    public long getDeletes() {
+        return deletes;
+    }
+
+    /**
+     * @return the number of key comparisons made by inserts and deletes.
+     */
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    public double getComparisonsPerOperation() {
+        long operations = inserts + deletes;
+        return operations == 0 ? 0 : (double) comparisons / operations;
+    }
+
+    /**
+     * @return the number of times an imbalance of this case was fixed. A
+     *         LEFT_RIGHT or RIGHT_LEFT fix takes two rotations.
+     */
+    public long getRebalances(ImbalanceCases imbalance) {
+        return rotations[imbalance.ordinal()];
+    }
+
+    /**
+     * @return the number of single rotations made.
+     */
+    public long getRotations() {
+        return rotations[ImbalanceCases.LEFT_LEFT.ordinal()] + rotations[ImbalanceCases.RIGHT_RIGHT.ordinal()]
+                + 2 * (rotations[ImbalanceCases.LEFT_RIGHT.ordinal()] + rotations[ImbalanceCases.RIGHT_LEFT.ordinal()]);
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder rebalances = new StringBuilder();
+        for (ImbalanceCases imbalance : ImbalanceCases.values()) {
+            rebalances.append(", ").append(imbalance).append('=').append(getRebalances(imbalance));
+        }
+        return String.format("AVLTreeStatistics[inserts=%d, deletes=%d, comparisons/op=%.2f, height=%d%s]",
+                inserts, deletes, getComparisonsPerOperation(), height, rebalances);
+    }
+}
@@ -0,0 +1,365 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * AVL tree that keeps its nodes in parallel primitive arrays instead of
+ * {@link AVLTree.Node} objects. A node is an index into the arrays, so a key
+ * costs 17 bytes of array space instead of a separate object with a header,
+ * three references and a hidden outer reference. Nodes also stay close together
+ * in memory.
+ *
+ * The insertion and rotation logic is the same as in {@link AVLTree}.
+ */
+public class ArrayAVLTree implements Iterable<Integer> {
+
+    // Index 0 is the null node. Its height is 0 and it is never handed out,
+    // so height lookups need no null checks.
+    protected static final int NIL = 0;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    protected int[] left;
+    protected int[] right;
+    protected int[] parent;
+    protected byte[] height;  // an AVL tree of 2^31 keys is less than 45 levels high
+    protected int[] value;
+
+    protected int root = NIL;
+
+    private int nextUnused = 1;
+    private int freeList = NIL;  // freed slots, chained through left[]
+
+    public ArrayAVLTree() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity
+     *            the number of keys the tree can hold before its arrays grow.
+     */
+    public ArrayAVLTree(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+
+        int capacity = initialCapacity + 1;
+        left = new int[capacity];
+        right = new int[capacity];
+        parent = new int[capacity];
+        height = new byte[capacity];
+        value = new int[capacity];
+    }
+
+    public void insert(int value) {
+        root = insertNode(root, value);
+        parent[root] = NIL;
+    }
+
+    protected int insertNode(int node, int value) {
+        /* 1.  Perform the normal BST search and insert */
+        if (node == NIL) {
+            return newNode(value);
+        }
+
+        if (value < this.value[node]) {
+            int child = insertNode(left[node], value);
+            left[node] = child;
+            parent[child] = node;
+        } else {
+            int child = insertNode(right[node], value);
+            right[node] = child;
+            parent[child] = node;
+        }
+
+        /* 2. Update height of this ancestor node */
+        updateHeight(node);
+
+        /* 3. Rebalance if this node became unbalanced */
+        int balance = getBalanceFactor(node);
+
+        // Left Cases
+        if (balance > 1) {
+            if (value >= this.value[left[node]]) {
+                left[node] = leftRotate(left[node]);
+            }
+
+            node = rightRotate(node);
+        } // Right Cases
+        else if (balance < -1) {
+            if (value < this.value[right[node]]) {
+                right[node] = rightRotate(right[node]);
+            }
+
+            node = leftRotate(node);
+        }
+
+        return node;
+    }
+
+    protected int rightRotate(int y) {
+        int x = left[y];
+        int T2 = right[x];
+
+        // Perform rotation
+        right[x] = y;
+        left[y] = T2;
+
+        //Update parents
+        if (T2 != NIL) {
+            parent[T2] = y;
+        }
+
+        parent[x] = parent[y];
+        parent[y] = x;
+
+        updateHeight(y);
+        updateHeight(x);
+
+        // Return new root
+        return x;
+    }
+
+    protected int leftRotate(int x) {
+        int y = right[x];
+        int T2 = left[y];
+
+        // Perform rotation
+        left[y] = x;
+        right[x] = T2;
+
+        //Update parents
+        if (T2 != NIL) {
+            parent[T2] = x;
+        }
+
+        parent[y] = parent[x];
+        parent[x] = y;
+
+        updateHeight(x);
+        updateHeight(y);
+
+        // Return new root
+        return y;
+    }
+
+    protected int getBalanceFactor(int n) {
+        return height[left[n]] - height[right[n]];
+    }
+
+    private void updateHeight(int n) {
+        height[n] = (byte) (Math.max(height[left[n]], height[right[n]]) + 1);
+    }
+
+    /**
+     * Remove one occurrence of the value from the tree, rebalancing on the
+     * way back up. The slot of the removed node is reused by later inserts.
+     *
+     * @return true if the value was in the tree.
+     */
+    public boolean delete(int value) {
+        if (!contains(value)) {
+            return false;
+        }
+
+        root = deleteNode(root, value);
+        if (root != NIL) {
+            parent[root] = NIL;
+        }
+        return true;
+    }
+
+    protected int deleteNode(int node, int value) {
+        /* 1. Perform the normal BST delete */
+        if (value < this.value[node]) {
+            int child = deleteNode(left[node], value);
+            left[node] = child;
+            if (child != NIL) {
+                parent[child] = node;
+            }
+        } else if (value > this.value[node]) {
+            int child = deleteNode(right[node], value);
+            right[node] = child;
+            if (child != NIL) {
+                parent[child] = node;
+            }
+        } else if (left[node] == NIL || right[node] == NIL) {
+            // Replace the node by its only child, if any
+            int child = left[node] != NIL ? left[node] : right[node];
+            if (child != NIL) {
+                parent[child] = parent[node];
+            }
+            freeNode(node);
+            return child;
+        } else {
+            // Take the value of the in-order successor and delete that instead
+            int successor = right[node];
+            while (left[successor] != NIL) {
+                successor = left[successor];
+            }
+            this.value[node] = this.value[successor];
+            int child = deleteNode(right[node], this.value[successor]);
+            right[node] = child;
+            if (child != NIL) {
+                parent[child] = node;
+            }
+        }
+
+        /* 2. Update height of this ancestor node */
+        updateHeight(node);
+
+        /* 3. Rebalance, choosing the case by the balance of the higher child */
+        int balance = getBalanceFactor(node);
+
+        // Left Cases
+        if (balance > 1) {
+            if (getBalanceFactor(left[node]) < 0) {
+                left[node] = leftRotate(left[node]);
+            }
+
+            node = rightRotate(node);
+        } // Right Cases
+        else if (balance < -1) {
+            if (getBalanceFactor(right[node]) > 0) {
+                right[node] = rightRotate(right[node]);
+            }
+
+            node = leftRotate(node);
+        }
+
+        return node;
+    }
+
+    public boolean contains(int value) {
+        int node = root;
+        while (node != NIL) {
+            int current = this.value[node];
+            if (value == current) {
+                return true;
+            }
+            node = value < current ? left[node] : right[node];
+        }
+        return false;
+    }
+
+    /**
+     * Take a slot for a new leaf, reusing a freed one if there is any.
+     */
+    protected int newNode(int value) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left[node];
+        } else {
+            if (nextUnused == this.value.length) {
+                grow();
+            }
+            node = nextUnused++;
+        }
+
+        left[node] = NIL;
+        right[node] = NIL;
+        parent[node] = NIL;
+        height[node] = 1;
+        this.value[node] = value;
+        return node;
+    }
+
+    /**
+     * Return a slot that is no longer linked into the tree to the free list.
+     */
+    protected void freeNode(int node) {
+        left[node] = freeList;
+        right[node] = NIL;
+        parent[node] = NIL;
+        height[node] = 0;
+        freeList = node;
+    }
+
+    private void grow() {
+        int capacity = value.length + (value.length >> 1) + 1;
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        height = Arrays.copyOf(height, capacity);
+        value = Arrays.copyOf(value, capacity);
+    }
+
+    /**
+     * Lazy traversals over the node indices, using an int stack of O(height)
+     * entries. The tree must not be modified while an iterator is in use.
+     */
+    private abstract class BaseBSTIterator implements PrimitiveIterator.OfInt {
+        protected final int[] stack = new int[height[root] + 1];
+        protected int top = 0;
+
+        @Override
+        public boolean hasNext() {
+            return top > 0;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return value[advance()];
+        }
+
+        abstract protected int advance();
+    }
+
+    public class InorderIterator extends BaseBSTIterator {
+        public InorderIterator() {
+            pushLeftPath(root);
+        }
+
+        @Override
+        protected int advance() {
+            int node = stack[--top];
+            pushLeftPath(right[node]);
+            return node;
+        }
+
+        private void pushLeftPath(int node) {
+            while (node != NIL) {
+                stack[top++] = node;
+                node = left[node];
+            }
+        }
+    }
+
+    public class PreorderIterator extends BaseBSTIterator {
+        public PreorderIterator() {
+            if (root != NIL) {
+                stack[top++] = root;
+            }
+        }
+
+        @Override
+        protected int advance() {
+            int node = stack[--top];
+            if (right[node] != NIL) {
+                stack[top++] = right[node];
+            }
+            if (left[node] != NIL) {
+                stack[top++] = left[node];
+            }
+            return node;
+        }
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return getInorderIterator();
+    }
+
+    public PrimitiveIterator.OfInt getInorderIterator() {
+        return new InorderIterator();
+    }
+
+    public PrimitiveIterator.OfInt getPreorderIterator() {
+        return new PreorderIterator();
+    }
+}
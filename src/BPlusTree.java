@@ -0,0 +1,340 @@
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * B+-Tree variant of {@link BTree}. Every value lives in a leaf, and the
+ * internal nodes only hold separator copies that route the search. Leaves are
+ * chained with prev/next links, so full and range scans walk along the leaf
+ * level without climbing back up through the parents.
+ *
+ * Insertion is the same preemptive-split descent as in BTree. Only a leaf
+ * split differs: the right half keeps its first value, and a copy of it is
+ * pushed up as the separator.
+ */
+public class BPlusTree<T extends Comparable<T>> extends BTree<T> {
+
+    /**
+     * Default Constructor for a 2-3 B+-Tree.
+     */
+    public BPlusTree() {
+        super();
+    }
+
+    /**
+     * Constructor for B+-Tree of ordered parameter.
+     *
+     * @param order
+     *            the minimal degree of a node of the B+-Tree.
+     */
+    public BPlusTree(int order) {
+        super(order);
+    }
+
+    @Override
+    protected T split(Node<T> nodeToSplit) {
+        if (!nodeToSplit.isLeaf()) {
+            return super.split(nodeToSplit);
+        }
+
+        Node<T> node = nodeToSplit;
+        int medianIndex = node.getNumberOfKeys() / 2;
+
+        Node<T> right = new Node<T>(null, maxDegree);
+        node.moveTail(medianIndex, right);
+        T separator = right.getKey(0);
+
+        // Link the new leaf after the split one
+        right.prev = node;
+        right.next = node.next;
+        if (node.next != null) {
+            node.next.prev = right;
+        }
+        node.next = right;
+
+        addToParent(node, separator, right);
+
+        return separator;
+    }
+
+    /**
+     * Remove one occurrence of the value from its leaf, in the same single
+     * preemptive pass as {@link BTree#remove}. The separators are only
+     * routing copies, so they are never removed with the value and may keep
+     * a value that is no longer in any leaf.
+     *
+     * @param value - the removed value
+     * @return true if the value was in the tree.
+     */
+    @Override
+    public boolean remove(T value) {
+        if (root == null) {
+            return false;
+        }
+
+        int minKeys = maxDegree / 2 - 1;
+        Node<T> node = root;
+
+        while (!node.isLeaf()) {
+            int idx = node.getValuePosition(value, stats);
+            if (idx < node.getNumberOfKeys() && isEqual(node.getKey(idx), value)
+                    && lastKey(node.getChild(idx)).compareTo(value) < 0) {
+                // Values equal to a separator may only be in the right subtree
+                idx++;
+            }
+
+            if (node.getChild(idx).getNumberOfKeys() == minKeys) {
+                idx = fillChild(node, idx);
+            }
+            node = node.getChild(idx);
+        }
+
+        int idx = node.getValuePosition(value, stats);
+        boolean removed = idx < node.getNumberOfKeys() && isEqual(node.getKey(idx), value);
+        if (removed) {
+            node.removeKey(idx);
+            keyRemoved();
+        }
+
+        shrinkRoot();
+        return removed;
+    }
+
+    // The largest value in the subtree
+    private T lastKey(Node<T> node) {
+        while (!node.isLeaf()) {
+            node = node.getChild(node.getNumberOfChildren() - 1);
+        }
+        return node.getKey(node.getNumberOfKeys() - 1);
+    }
+
+    /**
+     * Move the last value of a leaf to the front of its right sibling. The
+     * moved value becomes the separator.
+     */
+    @Override
+    protected void rotateRight(Node<T> parent, int idx) {
+        Node<T> left = parent.getChild(idx);
+        if (!left.isLeaf()) {
+            super.rotateRight(parent, idx);
+            return;
+        }
+
+        Node<T> right = parent.getChild(idx + 1);
+        right.addKey(0, left.removeKey(left.getNumberOfKeys() - 1));
+        parent.keys[idx] = right.getKey(0);
+    }
+
+    /**
+     * Move the first value of a leaf to the end of its left sibling. The new
+     * first value of the right leaf becomes the separator.
+     */
+    @Override
+    protected void rotateLeft(Node<T> parent, int idx) {
+        Node<T> left = parent.getChild(idx);
+        if (!left.isLeaf()) {
+            super.rotateLeft(parent, idx);
+            return;
+        }
+
+        Node<T> right = parent.getChild(idx + 1);
+        left.addKey(left.getNumberOfKeys(), right.removeKey(0));
+        parent.keys[idx] = right.getKey(0);
+    }
+
+    /**
+     * Merge two leaves, dropping the separator between them and unlinking the
+     * right one from the leaf chain.
+     */
+    @Override
+    protected void merge(Node<T> parent, int idx) {
+        Node<T> left = parent.getChild(idx);
+        if (!left.isLeaf()) {
+            super.merge(parent, idx);
+            return;
+        }
+
+        Node<T> right = parent.removeChild(idx + 1);
+        parent.removeKey(idx);
+        right.moveTail(0, left);
+        if (right == rightmostLeaf) {
+            rightmostLeaf = null;
+        }
+
+        left.next = right.next;
+        if (right.next != null) {
+            right.next.prev = left;
+        }
+        right.prev = null;
+        right.next = null;
+    }
+
+    /**
+     * Fill and link the leaves, keeping every value in a leaf. The separator
+     * between two leaves is a copy of the first value of the right one.
+     */
+    @Override
+    protected int packLeaves(Iterator<T> sorted, int keysPerLeaf, List<Node<T>> leaves, List<T> separators) {
+        int count = 0;
+        Node<T> leaf = null;
+        T previous = null;
+
+        while (sorted.hasNext()) {
+            T value = sorted.next();
+            checkSorted(previous, value);
+            previous = value;
+            count++;
+
+            if (leaf == null || leaf.getNumberOfKeys() == keysPerLeaf) {
+                Node<T> next = new Node<T>(null, maxDegree);
+                if (leaf != null) {
+                    leaf.next = next;
+                    next.prev = leaf;
+                    separators.add(value);
+                }
+                leaf = next;
+                leaves.add(leaf);
+            }
+            leaf.addKey(leaf.getNumberOfKeys(), value);
+        }
+
+        int n = leaves.size();
+        int minKeys = maxDegree / 2 - 1;
+        if (n > 1 && leaves.get(n - 1).getNumberOfKeys() < minKeys) {
+            Node<T> left = leaves.get(n - 2);
+            Node<T> last = leaves.get(n - 1);
+
+            if (left.getNumberOfKeys() + last.getNumberOfKeys() >= 2 * minKeys) {
+                while (last.getNumberOfKeys() < minKeys) {
+                    last.addKey(0, left.removeKey(left.getNumberOfKeys() - 1));
+                }
+                separators.set(n - 2, last.getKey(0));
+            } else {
+                last.moveTail(0, left);
+                left.next = null;
+                leaves.remove(n - 1);
+                separators.remove(n - 2);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the leaf that holds value.
+     *
+     * @param value
+     *            to find in the tree.
+     * @return the leaf with value, or null if it is not in the tree.
+     */
+    @Override
+    protected Node<T> getNode(T value) {
+        Node<T> leaf = findLeaf(value);
+        if (leaf == null) {
+            return null;
+        }
+
+        // Values equal to a separator may start in the next leaf
+        int idx = leaf.getValuePosition(value, stats);
+        if (idx == leaf.getNumberOfKeys()) {
+            leaf = leaf.next;
+            idx = 0;
+        }
+
+        return leaf != null && isEqual(leaf.getKey(idx), value) ? leaf : null;
+    }
+
+    /**
+     * Iterate over all the values in descending order, following the prev
+     * links from the last leaf.
+     */
+    public Iterator<T> descendingIterator() {
+        Node<T> leaf = root;
+        while (leaf != null && !leaf.isLeaf()) {
+            leaf = leaf.getChild(leaf.getNumberOfChildren() - 1);
+        }
+        final Node<T> last = leaf;
+
+        return new Iterator<T>() {
+            private Node<T> leaf = last;
+            private int idx = last == null ? -1 : last.getNumberOfKeys() - 1;
+
+            @Override
+            public boolean hasNext() {
+                return leaf != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                T value = leaf.getKey(idx--);
+                if (idx < 0) {
+                    leaf = leaf.prev;
+                    idx = leaf == null ? -1 : leaf.getNumberOfKeys() - 1;
+                }
+                return value;
+            }
+        };
+    }
+
+    @Override
+    protected Iterator<T> cursor(T from, T to) {
+        return new LeafCursor(from, to);
+    }
+
+    /**
+     * Descend to the leaf where the first value not smaller than value would
+     * be, or to the first leaf if value is null.
+     */
+    private Node<T> findLeaf(T value) {
+        Node<T> node = root;
+        while (node != null && !node.isLeaf()) {
+            node = node.getChild(value == null ? 0 : node.getValuePosition(value, stats));
+        }
+        return node;
+    }
+
+    /**
+     * Ascending cursor that seeks its first leaf from the root and then only
+     * follows the next links. The tree must not be modified while a cursor
+     * is in use.
+     */
+    private class LeafCursor implements Iterator<T> {
+        private Node<T> leaf;
+        private int idx;
+        private final T to;
+
+        LeafCursor(T from, T to) {
+            this.to = to;
+            leaf = findLeaf(from);
+            idx = leaf == null || from == null ? 0 : leaf.getValuePosition(from, stats);
+            skipExhausted();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null && (to == null || leaf.getKey(idx).compareTo(to) < 0);
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            T value = leaf.getKey(idx++);
+            skipExhausted();
+            return value;
+        }
+
+        private void skipExhausted() {
+            while (leaf != null && idx >= leaf.getNumberOfKeys()) {
+                leaf = leaf.next;
+                idx = 0;
+            }
+        }
+    }
+}
@@ -1,15 +1,37 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 @SuppressWarnings("unchecked")
-public class BTree<T extends Comparable<T>> {
+public class BTree<T extends Comparable<T>> implements Iterable<T> {
 
-    final private int maxDegree;
+    final protected int maxDegree;
 
     protected Node<T> root = null;
     protected int size = 0;
     
+    // Counters, only kept while statistics are enabled
+    protected BTreeStatistics stats = null;
+    
+    // Optional membership filter over the keys, only ever a superset of them
+    private static final int MIN_FILTER_CAPACITY = 1024;
+    protected BlockedBloomFilter filter = null;
+    private double filterFalsePositiveRate;
+    
+    // The last leaf, for appending values above the maximum without a
+    // descent. Null when unknown; found again on the next insert.
+    protected Node<T> rightmostLeaf = null;
+    
     //You may add fields here.
 
     /**
@@ -42,9 +64,16 @@ public class BTree<T extends Comparable<T>> {
      */
     public void insert(T value) {
     	
-        if (root == null) {
+        if (stats != null) {
+            stats.inserts++;
+        }
+        if (appendToRightmostLeaf(value)) {
+            // Done without a descent
+        } else if (root == null) {
             root = new Node<T>(null, maxDegree);
             root.addKey(value);
+            keyInserted(root, value);
+            rightmostLeaf = root;
         } else {
             Node<T> currentNode = root;
             boolean wasAdded = false;
@@ -57,84 +86,629 @@ public class BTree<T extends Comparable<T>> {
                 	
                 	// Return to the parent and descend to the needed node
                 	currentNode = currentNode.parent != null ? currentNode.parent : root;
-                    int idx = currentNode.getValuePosition(value);
+                    int idx = currentNode.getValuePosition(value, stats);
                     currentNode = currentNode.getChild(idx);
                 }
                 
                 // Descend the tree and add the key to a leaf
                 if (currentNode.isLeaf()) {
-                	currentNode.addKey(value);
+                	currentNode.addKey(currentNode.getValuePosition(value, stats), value);
+                	keyInserted(currentNode, value);
                 	wasAdded = true;
                 } else {
-                    int idx = currentNode.getValuePosition(value);
+                    int idx = currentNode.getValuePosition(value, stats);
                     currentNode = currentNode.getChild(idx);
                 }
             }
         }
 
+        valueInserted(value);
+        
+    }
+    
+    // Count an inserted value and add it to the filter
+    private void valueInserted(T value) {
         size++;
+        if (filter != null) {
+            filter.add(value);
+            if (filter.isOverloaded()) {
+                rebuildFilter();
+            }
+        }
+    }
+    
+    /**
+     * Add a value that is greater than every value in the tree straight to
+     * the last leaf, if that leaf has room. Increasing keys such as ids and
+     * timestamps then cost one comparison instead of a root-to-leaf descent.
+     * A full last leaf is left to the usual descent, which splits it.
+     *
+     * @return whether the value was added.
+     */
+    protected boolean appendToRightmostLeaf(T value) {
+        if (root == null) {
+            return false;
+        }
+        if (rightmostLeaf == null) {
+            Node<T> node = root;
+            while (!node.isLeaf()) {
+                node = node.getChild(node.getNumberOfChildren() - 1);
+            }
+            rightmostLeaf = node;
+        }
+        
+        Node<T> leaf = rightmostLeaf;
+        int numberOfKeys = leaf.getNumberOfKeys();
+        if (numberOfKeys == 0 || numberOfKeys == maxDegree - 1) {
+            return false;
+        }
+        if (stats != null) {
+            stats.comparisons++;
+        }
+        if (value.compareTo(leaf.getKey(numberOfKeys - 1)) <= 0) {
+            return false;
+        }
+        
+        leaf.addKey(numberOfKeys, value);
+        keyInserted(leaf, value);
+        return true;
+    }
+    
+    /**
+     * Insert every value of the collection. The values are sorted first, so
+     * that runs of them go to the same leaf: the path to the last leaf is
+     * kept, and each value only climbs it as far as needed and descends from
+     * there, splitting full nodes as insert does.
+     * 
+     * @param values - the inserted values
+     */
+    public void insertAll(Collection<? extends T> values) {
+        T[] sorted = (T[]) values.toArray(new Comparable<?>[values.size()]);
+        Arrays.sort(sorted);
+        insertSorted(sorted);
+    }
+    
+    /**
+     * Insert every value of the array, like {@link #insertAll(Collection)}.
+     * The array is not changed.
+     * 
+     * @param values - the inserted values
+     */
+    public void insertAll(T[] values) {
+        T[] sorted = values.clone();
+        Arrays.sort(sorted);
+        insertSorted(sorted);
+    }
+    
+    /**
+     * Insert values given in ascending order along a shared descent path.
+     */
+    protected void insertSorted(T[] sorted) {
+        InsertPath path = new InsertPath();
+        for (T value : sorted) {
+            if (stats != null) {
+                stats.inserts++;
+            }
+            if (appendToRightmostLeaf(value)) {
+                // Done without a descent
+            } else if (root == null) {
+                root = new Node<T>(null, maxDegree);
+                root.addKey(value);
+                keyInserted(root, value);
+                rightmostLeaf = root;
+            } else {
+                path.insert(value);
+            }
+            valueInserted(value);
+        }
+    }
+    
+    /**
+     * Path from the root to the leaf that received the last value of a
+     * sorted batch, with the upper bound of the values that descend into
+     * each node on it. Since the values ascend, the next one belongs under
+     * the lowest node on the path whose bound is not below it.
+     */
+    private class InsertPath {
+        private Node<T>[] nodes = (Node<T>[]) new Node<?>[8];
+        private T[] bounds = (T[]) new Comparable<?>[8];  // null means unbounded
+        private int depth = 0;
+        
+        void insert(T value) {
+            // Climb to a node that holds the value's range, and whose parent
+            // has room for a key in case the node has to split
+            while (depth > 0 && ((bounds[depth - 1] != null && value.compareTo(bounds[depth - 1]) > 0)
+                    || (depth > 1 && nodes[depth - 2].getNumberOfKeys() == maxDegree - 1))) {
+                depth--;
+            }
+            if (depth == 0) {
+                push(root, null);
+            }
+            
+            Node<T> node = nodes[depth - 1];
+            while (true) {
+                if (node.getNumberOfKeys() == maxDegree - 1) {
+                    split(node);
+                    
+                    // Continue from the parent, which may be a new root
+                    if (depth == 1) {
+                        nodes[0] = root;
+                    } else {
+                        depth--;
+                    }
+                    node = nodes[depth - 1];
+                }
+                
+                int idx = node.getValuePosition(value, stats);
+                if (node.isLeaf()) {
+                    node.addKey(idx, value);
+                    keyInserted(node, value);
+                    return;
+                }
+                
+                T bound = idx < node.getNumberOfKeys() ? node.getKey(idx) : bounds[depth - 1];
+                node = node.getChild(idx);
+                push(node, bound);
+            }
+        }
         
+        private void push(Node<T> node, T bound) {
+            if (depth == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * depth);
+                bounds = Arrays.copyOf(bounds, 2 * depth);
+            }
+            nodes[depth] = node;
+            bounds[depth] = bound;
+            depth++;
+        }
     }
     
     /**
-     * Split a node in its median value
+     * Split a node in its median value. The node keeps the lower half and a
+     * new right sibling takes the upper half.
      *
      * @param nodeToSplit
      *            a node with (2 * order - 1) keys
      */
-    private T split(Node<T> nodeToSplit) {
+    protected T split(Node<T> nodeToSplit) {
         Node<T> node = nodeToSplit;
         int numberOfKeys = node.getNumberOfKeys();
         int medianIndex = numberOfKeys / 2;
         T medianValue = node.getKey(medianIndex);
 
-        Node<T> left = createPartialNodeCopy(node, 0, medianIndex);
-        Node<T> right = createPartialNodeCopy(node, medianIndex + 1, numberOfKeys);
+        Node<T> right = new Node<T>(null, maxDegree);
+        node.moveTail(medianIndex + 1, right);
+        node.removeKey(medianIndex);
         
-        Node<T> parent = null;
-        if (node.parent == null) {
+        addToParent(node, medianValue, right);
+
+        return medianValue;
+    }
+    
+    /**
+     * Put a separator and the new right half of a split node into the node's
+     * parent, creating a new root if the node was the root.
+     */
+    protected void addToParent(Node<T> node, T medianValue, Node<T> right) {
+        Node<T> parent = node.parent;
+        boolean newRoot = parent == null;
+        int childIdx;
+        if (newRoot) {
             // create a new root
             parent = new Node<T>(null, maxDegree);
-            node.parent = parent;
+            parent.addChild(0, node);
             root = parent;
+            childIdx = 0;
         } else {
-            // Remove the median from the parent if non-root
-            parent = node.parent;
-            parent.removeChild(node);
+            childIdx = parent.indexOf(node);
         }
         
         // Move the median value up to the parent
-        parent.addKey(medianValue);
-        parent.addChild(left);
-        parent.addChild(right);
-
-        return medianValue;
+        parent.addKey(childIdx, medianValue);
+        parent.addChild(childIdx + 1, right);
+        if (node == rightmostLeaf) {
+            rightmostLeaf = right;
+        }
+        
+        if (stats != null) {
+            stats.splits++;
+            if (newRoot) {
+                stats.newRoots++;
+            }
+        }
+        TreeEvents.bTreeSplit(node.isLeaf(), newRoot);
+        nodeSplit(node, medianValue, right, newRoot);
     }
     
-    private Node<T> createPartialNodeCopy(Node<T> origin, int startIdx, int endIdx) {
-        Node<T> copy = new Node<T>(null, maxDegree);
-        for (int i = startIdx; i < endIdx; i++) {
-            copy.addKey(origin.getKey(i));
+    /**
+     * Remove one occurrence of the value from this BTree in a single pass down
+     * from the root. Before the descent enters a node with the minimal number
+     * of keys, that node borrows a key from a sibling or is merged with one,
+     * just as insert splits full nodes before entering them. Removing a key
+     * therefore never has to climb back up.
+     *
+     * @param value - the removed value
+     * @return true if the value was in the tree.
+     */
+    public boolean remove(T value) {
+        if (root == null) {
+            return false;
         }
         
-        if (origin.getNumberOfChildren() > 0) {
-            for (int j = startIdx; j <= endIdx; j++) {
-                Node<T> child = origin.getChild(j);
-                copy.addChild(child);
+        int minKeys = maxDegree / 2 - 1;
+        boolean removed = false;
+        Node<T> node = root;
+        T key = value;
+        
+        while (node != null) {
+            int idx = node.getValuePosition(key, stats);
+            boolean found = idx < node.getNumberOfKeys() && isEqual(node.getKey(idx), key);
+            
+            if (node.isLeaf()) {
+                if (found) {
+                    node.removeKey(idx);
+                    removed = true;
+                }
+                node = null;
+            } else if (found) {
+                Node<T> left = node.getChild(idx);
+                Node<T> right = node.getChild(idx + 1);
+                if (left.getNumberOfKeys() > minKeys) {
+                    // Replace the key by its predecessor and remove that instead
+                    Node<T> max = left;
+                    while (!max.isLeaf()) {
+                        max = max.getChild(max.getNumberOfChildren() - 1);
+                    }
+                    key = max.getKey(max.getNumberOfKeys() - 1);
+                    node.keys[idx] = key;
+                    node = left;
+                } else if (right.getNumberOfKeys() > minKeys) {
+                    // Replace the key by its successor and remove that instead
+                    Node<T> min = right;
+                    while (!min.isLeaf()) {
+                        min = min.getChild(0);
+                    }
+                    key = min.getKey(0);
+                    node.keys[idx] = key;
+                    node = right;
+                } else {
+                    // Both neighbours are minimal: merge them around the key
+                    merge(node, idx);
+                    node = left;
+                }
+            } else {
+                if (node.getChild(idx).getNumberOfKeys() == minKeys) {
+                    idx = fillChild(node, idx);
+                }
+                node = node.getChild(idx);
             }
         }
         
-        return copy;
+        shrinkRoot();
+        if (removed) {
+            keyRemoved();
+        }
+        return removed;
     }
     
+    /**
+     * Account for a value that remove took out of the tree.
+     */
+    protected void keyRemoved() {
+        size--;
+        if (stats != null) {
+            stats.removes++;
+        }
+        filterKeyRemoved();
+    }
+    
+    /**
+     * Record in the filter that a key has left the tree, and rebuild the filter
+     * once the stale keys it still holds outnumber the live ones.
+     */
+    protected void filterKeyRemoved() {
+        if (filter != null) {
+            filter.removedKey();
+            // Removed keys linger in the filter; rebuild once they are many
+            if (2 * filter.getStaleKeys() > size + MIN_FILTER_CAPACITY) {
+                rebuildFilter();
+            }
+        }
+    }
+    
+    /**
+     * Give a child with the minimal number of keys one more, by rotating a key
+     * from a sibling that can spare one or by merging it with a sibling.
+     *
+     * @return the index of the child that now holds the original child's
+     *         keys.
+     */
+    protected int fillChild(Node<T> parent, int childIdx) {
+        int minKeys = maxDegree / 2 - 1;
+        
+        if (childIdx > 0 && parent.getChild(childIdx - 1).getNumberOfKeys() > minKeys) {
+            rotateRight(parent, childIdx - 1);
+        } else if (childIdx < parent.getNumberOfKeys() && parent.getChild(childIdx + 1).getNumberOfKeys() > minKeys) {
+            rotateLeft(parent, childIdx);
+        } else if (childIdx < parent.getNumberOfKeys()) {
+            merge(parent, childIdx);
+        } else {
+            merge(parent, childIdx - 1);
+            childIdx--;
+        }
+        
+        return childIdx;
+    }
+    
+    /**
+     * Move the last key of child idx up to the parent, and the separator
+     * between children idx and idx + 1 down to the front of child idx + 1.
+     */
+    protected void rotateRight(Node<T> parent, int idx) {
+        Node<T> left = parent.getChild(idx);
+        Node<T> right = parent.getChild(idx + 1);
+        
+        right.addKey(0, parent.getKey(idx));
+        parent.keys[idx] = left.removeKey(left.getNumberOfKeys() - 1);
+        if (!left.isLeaf()) {
+            right.addChild(0, left.removeChild(left.getNumberOfChildren() - 1));
+        }
+    }
+    
+    /**
+     * Move the first key of child idx + 1 up to the parent, and the separator
+     * between children idx and idx + 1 down to the end of child idx.
+     */
+    protected void rotateLeft(Node<T> parent, int idx) {
+        Node<T> left = parent.getChild(idx);
+        Node<T> right = parent.getChild(idx + 1);
+        
+        left.addKey(left.getNumberOfKeys(), parent.getKey(idx));
+        parent.keys[idx] = right.removeKey(0);
+        if (!right.isLeaf()) {
+            left.addChild(left.getNumberOfChildren(), right.removeChild(0));
+        }
+    }
+    
+    /**
+     * Merge child idx + 1 and the separator before it into child idx.
+     */
+    protected void merge(Node<T> parent, int idx) {
+        Node<T> left = parent.getChild(idx);
+        Node<T> right = parent.removeChild(idx + 1);
+        if (right == rightmostLeaf) {
+            rightmostLeaf = null;
+        }
+        
+        left.addKey(left.getNumberOfKeys(), parent.removeKey(idx));
+        right.moveTail(0, left);
+    }
+    
+    // Drop an empty root, letting its only child take over
+    protected void shrinkRoot() {
+        if (root.getNumberOfKeys() == 0) {
+            root = root.getChild(0);
+            if (root != null) {
+                root.parent = null;
+            }
+        }
+    }
+    
+    /**
+     * Called by insert with the leaf that received the value.
+     */
+    protected void keyInserted(Node<T> leaf, T value) {
+    }
+    
+    /**
+     * Called after a node was split.
+     *
+     * @param node - the split node, which kept the lower half
+     * @param medianValue - the separator that moved up to the parent
+     * @param right - the new node with the upper half
+     * @param newRoot - whether the parent is a new root
+     */
+    protected void nodeSplit(Node<T> node, T medianValue, Node<T> right, boolean newRoot) {
+    }
+    
+    /**
+     * Build this BTree from values given in ascending order, without inserting
+     * them one by one. The leaves are packed left to right in a single pass
+     * over the input, and then the internal levels are built bottom-up. The
+     * result satisfies the same invariants as a tree built by insert.
+     *
+     * @param sorted
+     *            the values, in ascending order
+     * @param fillFactor
+     *            the fraction of the (2 * order - 1) key slots to fill in each
+     *            node, in (0, 1]. No node gets less than (order - 1) keys.
+     */
+    public void bulkLoad(Iterator<T> sorted, double fillFactor) {
+        if (root != null) {
+            throw new IllegalStateException("Bulk loading needs an empty tree");
+        }
+        if (!(fillFactor > 0 && fillFactor <= 1)) {
+            throw new IllegalArgumentException("Illegal fill factor: " + fillFactor);
+        }
+        
+        int minKeys = maxDegree / 2 - 1;
+        int keysPerNode = (int) Math.round(fillFactor * (maxDegree - 1));
+        keysPerNode = Math.max(minKeys, Math.min(maxDegree - 1, keysPerNode));
+        
+        List<Node<T>> level = new ArrayList<>();
+        List<T> separators = new ArrayList<>();
+        size = packLeaves(sorted, keysPerNode, level, separators);
+        
+        while (level.size() > 1) {
+            List<Node<T>> parents = new ArrayList<>();
+            List<T> parentSeparators = new ArrayList<>();
+            buildParents(level, separators, keysPerNode + 1, parents, parentSeparators);
+            level = parents;
+            separators = parentSeparators;
+        }
+        
+        root = level.isEmpty() ? null : level.get(0);
+        rightmostLeaf = null;
+        if (filter != null) {
+            rebuildFilter();
+        }
+    }
+    
+    /**
+     * Fill leaves with keysPerLeaf values each, in order. The value that
+     * follows a full leaf becomes the separator between it and the next leaf.
+     * The last leaf is evened out with its left neighbour if it ends up with
+     * too few values.
+     *
+     * @return the number of values read.
+     */
+    protected int packLeaves(Iterator<T> sorted, int keysPerLeaf, List<Node<T>> leaves, List<T> separators) {
+        int count = 0;
+        Node<T> leaf = null;
+        T previous = null;
+        
+        while (sorted.hasNext()) {
+            T value = sorted.next();
+            checkSorted(previous, value);
+            previous = value;
+            count++;
+            
+            if (leaf != null && leaf.getNumberOfKeys() == keysPerLeaf) {
+                separators.add(value);
+                leaf = null;
+            } else {
+                if (leaf == null) {
+                    leaf = new Node<T>(null, maxDegree);
+                    leaves.add(leaf);
+                }
+                leaf.addKey(leaf.getNumberOfKeys(), value);
+            }
+        }
+        
+        if (!leaves.isEmpty() && separators.size() == leaves.size()) {
+            // The input ended right after a separator
+            leaves.add(new Node<T>(null, maxDegree));
+        }
+        
+        int n = leaves.size();
+        int minKeys = maxDegree / 2 - 1;
+        if (n > 1 && leaves.get(n - 1).getNumberOfKeys() < minKeys) {
+            Node<T> left = leaves.get(n - 2);
+            Node<T> last = leaves.get(n - 1);
+            T separator = separators.get(n - 2);
+            
+            if (left.getNumberOfKeys() + last.getNumberOfKeys() >= 2 * minKeys) {
+                // Rotate values from the left leaf through the separator
+                while (last.getNumberOfKeys() < minKeys) {
+                    last.addKey(0, separator);
+                    separator = left.removeKey(left.getNumberOfKeys() - 1);
+                }
+                separators.set(n - 2, separator);
+            } else {
+                left.addKey(left.getNumberOfKeys(), separator);
+                last.moveTail(0, left);
+                leaves.remove(n - 1);
+                separators.remove(n - 2);
+            }
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Group a level of nodes under as few parents as the target fill allows,
+     * spreading the children evenly so that every parent gets between order
+     * and (2 * order) of them. The separators between two groups move up to
+     * the next level.
+     */
+    private void buildParents(List<Node<T>> level, List<T> separators, int childrenPerNode,
+            List<Node<T>> parents, List<T> parentSeparators) {
+        int m = level.size();
+        int minChildren = maxDegree / 2;
+        int parentCount = Math.max(1, Math.min((m + childrenPerNode - 1) / childrenPerNode, m / minChildren));
+        int base = m / parentCount;
+        int extra = m % parentCount;
+        
+        int i = 0;
+        for (int j = 0; j < parentCount; j++) {
+            Node<T> parent = new Node<T>(null, maxDegree);
+            int end = i + base + (j < extra ? 1 : 0);
+            for (; i < end; i++) {
+                parent.addChild(parent.getNumberOfChildren(), level.get(i));
+                if (i < end - 1) {
+                    parent.addKey(parent.getNumberOfKeys(), separators.get(i));
+                }
+            }
+            parents.add(parent);
+            if (i < m) {
+                parentSeparators.add(separators.get(i - 1));
+            }
+        }
+    }
+    
+    protected void checkSorted(T previous, T value) {
+        if (previous != null && previous.compareTo(value) > 0) {
+            throw new IllegalArgumentException("Values are not in ascending order: " + value + " after " + previous);
+        }
+    }
 
     /**
      * {@inheritDoc}
      */
     public boolean contains(T value) {
+        if (stats != null) {
+            stats.lookups++;
+        }
+        if (filter != null && !filter.mightContain(value)) {
+            return false;
+        }
+        
         Node<T> node = getNode(value);
+        if (node == null && filter != null) {
+            filter.falsePositive();
+        }
         return (node != null);
     }
+    
+    /**
+     * Keep a blocked Bloom filter of the keys, so that contains answers most
+     * misses without searching the tree. The filter is kept up to date by
+     * insert and bulkLoad, and is rebuilt with twice the capacity when it
+     * fills up, or when many of its keys were removed. Keys that compare as
+     * equal must have equal hash codes.
+     *
+     * @param falsePositiveRate
+     *            the target rate of misses the filter lets through, in (0, 1).
+     *            Lower rates take more memory per key.
+     */
+    public void enableFilter(double falsePositiveRate) {
+        filterFalsePositiveRate = falsePositiveRate;
+        filter = new BlockedBloomFilter(MIN_FILTER_CAPACITY, falsePositiveRate);
+        rebuildFilter();
+    }
+    
+    public void disableFilter() {
+        filter = null;
+    }
+    
+    /**
+     * @return the sizing and lookup counters of the filter, or null if there
+     *         is no filter.
+     */
+    public BlockedBloomFilter.Statistics getFilterStatistics() {
+        return filter == null ? null : filter.getStatistics();
+    }
+    
+    // Fill a new filter, sized for twice the keys, from the tree
+    private void rebuildFilter() {
+        BlockedBloomFilter rebuilt = new BlockedBloomFilter(Math.max(MIN_FILTER_CAPACITY, 2 * size),
+                filterFalsePositiveRate);
+        for (T value : this) {
+            rebuilt.add(value);
+        }
+        rebuilt.inheritCounters(filter);
+        filter = rebuilt;
+    }
 
     /**
      * Get the node with value.
@@ -148,8 +722,8 @@ public class BTree<T extends Comparable<T>> {
         boolean found = false;
         
         while (node != null && !found) {
-            int idx = node.getValuePosition(value);
-            if (idx < node.getNumberOfKeys() && node.getKey(idx) == value) {
+            int idx = node.getValuePosition(value, stats);
+            if (idx < node.getNumberOfKeys() && isEqual(node.getKey(idx), value)) {
                 found = true;
             } else if (!node.isLeaf()){
                 node = node.getChild(idx);
@@ -162,6 +736,17 @@ public class BTree<T extends Comparable<T>> {
     }
 
 
+    /**
+     * Compare a key found by a search with the searched value, counting the
+     * comparison.
+     */
+    protected boolean isEqual(T key, T value) {
+        if (stats != null) {
+            stats.comparisons++;
+        }
+        return key.compareTo(value) == 0;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -169,6 +754,111 @@ public class BTree<T extends Comparable<T>> {
         return size;
     }
 
+    /**
+     * Start counting operations, comparisons, splits and new roots, from zero.
+     * Counting costs a null check per step while it is disabled.
+     */
+    public void enableStatistics() {
+        stats = new BTreeStatistics();
+    }
+
+    public void disableStatistics() {
+        stats = null;
+    }
+
+    /**
+     * @return a copy of the counters with the current height and fill factor,
+     *         or null if statistics are not enabled. The fill factor is
+     *         computed by visiting every node.
+     */
+    public BTreeStatistics getStatistics() {
+        if (stats == null) {
+            return null;
+        }
+
+        int height = 0;
+        for (Node<T> node = root; node != null; node = node.getChild(0)) {
+            height++;
+        }
+
+        long nodes = 0;
+        long keys = 0;
+        ArrayDeque<Node<T>> pending = new ArrayDeque<>();
+        if (root != null) {
+            pending.push(root);
+        }
+        while (!pending.isEmpty()) {
+            Node<T> node = pending.pop();
+            nodes++;
+            keys += node.getNumberOfKeys();
+            for (int i = 0; i < node.getNumberOfChildren(); i++) {
+                pending.push(node.getChild(i));
+            }
+        }
+
+        double fillFactor = nodes == 0 ? 0 : (double) keys / (nodes * (maxDegree - 1));
+        return stats.snapshot(height, nodes, fillFactor);
+    }
+
+    /**
+     * Iterate over all the values of this BTree in ascending order.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return cursor(null, null);
+    }
+
+    /**
+     * Iterate in ascending order over the values v with from <= v < to.
+     * 
+     * @param from - the lower bound, inclusive
+     * @param to - the upper bound, exclusive
+     */
+    public Iterator<T> range(T from, T to) {
+        if (from == null || to == null) {
+            throw new NullPointerException("Range bounds must not be null");
+        }
+        return cursor(from, to);
+    }
+
+    /**
+     * Iterate in ascending order over the values that are not smaller than key.
+     * 
+     * @param key - the lower bound, inclusive
+     */
+    public Iterator<T> tailFrom(T key) {
+        if (key == null) {
+            throw new NullPointerException("Range bound must not be null");
+        }
+        return cursor(key, null);
+    }
+
+    /**
+     * Create an ascending cursor over the values v with from <= v < to. A null
+     * bound leaves that side of the range open.
+     */
+    protected Iterator<T> cursor(T from, T to) {
+        return new Cursor(from, to);
+    }
+
+    /**
+     * Spliterator over all the values in ascending order, which splits at the
+     * keys of the nodes, so parallel streams divide the tree by subtrees.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new KeyRangeSpliterator(null, null, size, true);
+    }
+
+    /**
+     * @return a sequential stream of the values in ascending order. Call
+     *         parallel() on it to spread the work over the common fork-join
+     *         pool. The tree must not be modified while the stream runs.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -187,13 +877,12 @@ public class BTree<T extends Comparable<T>> {
     	protected int numOfKeys = 0;
     	protected Node<T>[] children = null;
     	protected int numOfChildren = 0;
-    	protected Comparator<Node<T>> comparator = new Comparator<Node<T>>() {
-            public int compare(Node<T> arg0, Node<T> arg1) {
-                return arg0.getKey(0).compareTo(arg1.getKey(0));
-            }
-        };
 
         Node<T> parent = null;
+        
+        // Sibling links between leaves, only maintained by BPlusTree
+        Node<T> prev = null;
+        Node<T> next = null;
 
         Node(Node<T> parent, int maxDegree) {
             this.parent = parent;
@@ -208,53 +897,39 @@ public class BTree<T extends Comparable<T>> {
         }
 
         int indexOf(T value) {
-            for (int i = 0; i < numOfKeys; i++) {
-                if (keys[i].equals(value)) return i;
-            }
-            return -1;
+            int idx = getValuePosition(value);
+            return idx < numOfKeys && keys[idx].compareTo(value) == 0 ? idx : -1;
         }
 
         int indexOf(Node<T> child) {
             for (int i = 0; i < numOfChildren; i++) {
-                if (children[i].equals(child))
+                if (children[i] == child)
                     return i;
             }
             return -1;
         }
 
         void addKey(T value) {
-            keys[numOfKeys++] = value;
-            Arrays.sort(keys, 0, numOfKeys);
+            addKey(getValuePosition(value), value);
+        }
+
+        void addKey(int index, T value) {
+            System.arraycopy(keys, index, keys, index + 1, numOfKeys - index);
+            keys[index] = value;
+            numOfKeys++;
         }
 
         T removeKey(T value) {
-            T removed = null;
-            boolean found = false;
-            if (numOfKeys == 0) return null;
-            for (int i = 0; i < numOfKeys; i++) {
-                if (keys[i].equals(value)) {
-                    found = true;
-                    removed = keys[i];
-                } else if (found) {
-                    // shift the rest of the keys down
-                    keys[i - 1] = keys[i];
-                }
-            }
-            if (found) {
-            	numOfKeys--;
-                keys[numOfKeys] = null;
-            }
-            return removed;
+            int index = indexOf(value);
+            return index < 0 ? null : removeKey(index);
         }
 
         T removeKey(int index) {
             if (index >= numOfKeys)
                 return null;
             T value = keys[index];
-            for (int i = index + 1; i < numOfKeys; i++) {
-                // shift the rest of the keys down
-                keys[i - 1] = keys[i];
-            }
+            // shift the rest of the keys down
+            System.arraycopy(keys, index + 1, keys, index, numOfKeys - index - 1);
             numOfKeys--;
             keys[numOfKeys] = null;
             return value;
@@ -268,61 +943,86 @@ public class BTree<T extends Comparable<T>> {
             return index < numOfChildren ? children[index] : null;
         }
         
-        private int getValuePosition(T value) {
-            boolean found = false;
-            int i = 0;
+        /**
+         * @return the index of the first key that is not smaller than value,
+         *         or the number of keys if there is none.
+         */
+        int getValuePosition(T value) {
+            return getValuePosition(value, null);
+        }
+        
+        /**
+         * getValuePosition that adds the comparisons it made to the
+         * statistics, if they are not null.
+         */
+        int getValuePosition(T value, BTreeStatistics stats) {
+            int low = 0;
+            int high = numOfKeys;
+            int comparisons = 0;
             
-            while(i < getNumberOfKeys() && !found) {
-                if(value.compareTo(getKey(i)) <= 0){
-                    found = true;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                comparisons++;
+                if (value.compareTo(keys[mid]) > 0) {
+                    low = mid + 1;
                 } else {
-                    i++;
+                    high = mid;
                 }
             }
             
-            return i;
+            if (stats != null) {
+                stats.comparisons += comparisons;
+            }
+            return low;
         }
 
-        boolean addChild(Node<T> child) {
+        boolean addChild(int index, Node<T> child) {
             child.parent = this;
-            children[numOfChildren++] = child;
-            Arrays.sort(children, 0, numOfChildren, comparator);
+            System.arraycopy(children, index, children, index + 1, numOfChildren - index);
+            children[index] = child;
+            numOfChildren++;
             return true;
         }
 
         boolean removeChild(Node<T> child) {
-            boolean found = false;
-            
-            for (int i = 0; i < numOfChildren; i++) {
-                if (children[i].equals(child)) {
-                    found = true;
-                } else if (found) {
-                    children[i - 1] = children[i];
-                }
-            }
-            
-            if (found) {
-                numOfChildren--;
-                children[numOfChildren] = null;
-            }
-            
-            return found;
+            int index = indexOf(child);
+            return index >= 0 && removeChild(index) != null;
         }
 
         Node<T> removeChild(int index) {
             if (index >= numOfChildren)
                 return null;
             Node<T> value = children[index];
-            children[index] = null;
-            for (int i = index + 1; i < numOfChildren; i++) {
-                // shift the rest of the keys down
-                children[i - 1] = children[i];
-            }
+            // shift the rest of the children down
+            System.arraycopy(children, index + 1, children, index, numOfChildren - index - 1);
             numOfChildren--;
             children[numOfChildren] = null;
             return value;
         }
 
+        /**
+         * Move the keys from index keyIdx on, and the children to their right,
+         * to the end of another node.
+         */
+        void moveTail(int keyIdx, Node<T> to) {
+            int keyCount = numOfKeys - keyIdx;
+            System.arraycopy(keys, keyIdx, to.keys, to.numOfKeys, keyCount);
+            Arrays.fill(keys, keyIdx, numOfKeys, null);
+            to.numOfKeys += keyCount;
+            numOfKeys = keyIdx;
+            
+            if (numOfChildren > 0) {
+                int childCount = numOfChildren - keyIdx;
+                for (int i = keyIdx; i < numOfChildren; i++) {
+                    children[i].parent = to;
+                }
+                System.arraycopy(children, keyIdx, to.children, to.numOfChildren, childCount);
+                Arrays.fill(children, keyIdx, numOfChildren, null);
+                to.numOfChildren += childCount;
+                numOfChildren = keyIdx;
+            }
+        }
+
         public int getNumberOfChildren() {
             return numOfChildren;
         }
@@ -363,6 +1063,186 @@ public class BTree<T extends Comparable<T>> {
         }
     }
 
+    /**
+     * In-order cursor. It keeps one (node, key index) pair per level of the
+     * path to the next value, so seeking costs O(log n) and a scan uses
+     * O(height) extra memory however many values it returns. The tree must
+     * not be modified while a cursor is in use.
+     */
+    private class Cursor implements Iterator<T> {
+        private final Node<T>[] nodes;
+        private final int[] positions;
+        private int depth = 0;
+        private final T to;
+
+        /**
+         * @param from - the first value to return is the smallest one not
+         *            smaller than from, or the minimum if from is null
+         * @param to - the scan stops before the first value not smaller than
+         *            to, or runs to the end if to is null
+         */
+        Cursor(T from, T to) {
+            this.to = to;
+            
+            int height = 0;
+            for (Node<T> node = root; node != null; node = node.getChild(0)) {
+                height++;
+            }
+            nodes = (Node<T>[]) new Node<?>[height];
+            positions = new int[height];
+            
+            // Seek the first value that is not smaller than from
+            Node<T> node = root;
+            while (node != null) {
+                int idx = from == null ? 0 : node.getValuePosition(from, stats);
+                push(node, idx);
+                node = node.getChild(idx);
+            }
+            skipExhausted();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0 && (to == null || peek().compareTo(to) < 0);
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            
+            Node<T> node = nodes[depth - 1];
+            int idx = positions[depth - 1]++;
+            T value = node.getKey(idx);
+            
+            // The next value is the minimum of the subtree right of this key
+            Node<T> child = node.getChild(idx + 1);
+            while (child != null) {
+                push(child, 0);
+                child = child.getChild(0);
+            }
+            skipExhausted();
+            
+            return value;
+        }
+        
+        private T peek() {
+            return nodes[depth - 1].getKey(positions[depth - 1]);
+        }
+
+        private void push(Node<T> node, int position) {
+            nodes[depth] = node;
+            positions[depth] = position;
+            depth++;
+        }
+
+        // Pop the nodes whose keys were all returned
+        private void skipExhausted() {
+            while (depth > 0 && positions[depth - 1] >= nodes[depth - 1].getNumberOfKeys()) {
+                nodes[--depth] = null;
+            }
+        }
+    }
+
+    /**
+     * Spliterator over the values v with from <= v < to, a null bound leaving
+     * that side open. It splits at the middle key of the highest node with
+     * keys inside the range, so both halves are whole subtrees plus the keys
+     * between them. Only the spliterator of the whole tree knows its exact
+     * size; the halves estimate theirs. A spliterator only splits until it
+     * starts returning values, and then walks a cursor over its range.
+     */
+    private class KeyRangeSpliterator implements Spliterator<T> {
+        private T from;
+        private final T to;
+        private long estimate;
+        private boolean exact;
+        private Iterator<T> cursor = null;
+
+        KeyRangeSpliterator(T from, T to, long estimate, boolean exact) {
+            this.from = from;
+            this.to = to;
+            this.estimate = estimate;
+            this.exact = exact;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (cursor != null) {
+                return null;
+            }
+
+            T middle = splitKey();
+            if (middle == null) {
+                return null;
+            }
+
+            // This spliterator keeps the upper half
+            Spliterator<T> lower = new KeyRangeSpliterator(from, middle, estimate >>> 1, false);
+            from = middle;
+            estimate -= estimate >>> 1;
+            exact = false;
+            return lower;
+        }
+
+        // The middle key inside the range of the highest node that has one
+        private T splitKey() {
+            Node<T> node = root;
+            while (node != null) {
+                int low = from == null ? 0 : node.getValuePosition(from, stats);
+                int high = to == null ? node.getNumberOfKeys() : node.getValuePosition(to, stats);
+                // Splitting at from itself would leave the lower half empty
+                while (from != null && low < high && node.getKey(low).compareTo(from) <= 0) {
+                    low++;
+                }
+                if (low < high) {
+                    return node.getKey((low + high) >>> 1);
+                }
+                node = node.getChild(low);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (cursor == null) {
+                cursor = cursor(from, to);
+            }
+            if (!cursor.hasNext()) {
+                return false;
+            }
+            action.accept(cursor.next());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (cursor == null) {
+                cursor = cursor(from, to);
+            }
+            while (cursor.hasNext()) {
+                action.accept(cursor.next());
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            int characteristics = ORDERED | SORTED | NONNULL;
+            return exact ? characteristics | SIZED : characteristics;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return null;
+        }
+    }
+
     private static class TreePrinter {
         public static <T extends Comparable<T>> String getString(BTree<T> bTree) {
             return bTree.root == null ? "Empty tree" : getString(bTree.root, "", true);
@@ -0,0 +1,190 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary image of a {@link BTree}: its values in ascending order,
+ * without any node structure. Writing walks the tree with its iterator, and
+ * loading feeds the values straight into {@link BTree#bulkLoad}, so both are
+ * a single sequential pass over the file.
+ *
+ * <pre>
+ * | magic (4) | key size (4) | sequence (8) | count (8) | keys | CRC32 of all before it (4) |
+ * </pre>
+ *
+ * The sequence is the first write-ahead log record that the snapshot does not
+ * contain.
+ */
+public final class BTreeSnapshot {
+
+    private static final int MAGIC = 0x4253534e;  // "BSSN"
+    private static final int HEADER = 24;
+    private static final int BATCH = 1 << 16;
+
+    // Leave room in the loaded nodes, so the first inserts do not all split
+    private static final double LOAD_FILL_FACTOR = 0.75;
+
+    private BTreeSnapshot() {
+    }
+
+    /**
+     * Write the values of the tree to the file. The snapshot is written to a
+     * temporary file and forced to the device first, and then renamed over
+     * the file, so the file always holds a complete snapshot.
+     */
+    public static <T extends Comparable<T>> void write(BTree<T> tree, KeyCodec<T> codec, long sequence, Path file)
+            throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        int keySize = codec.size();
+        CRC32 crc = new CRC32();
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer batch = ByteBuffer.allocate(Math.max(HEADER, (BATCH / keySize) * keySize));
+            batch.putInt(MAGIC);
+            batch.putInt(keySize);
+            batch.putLong(sequence);
+            batch.putLong(tree.size());
+
+            for (T value : tree) {
+                if (batch.remaining() < keySize) {
+                    writeBatch(channel, batch, crc);
+                }
+                codec.write(batch, batch.position(), value);
+                batch.position(batch.position() + keySize);
+            }
+            writeBatch(channel, batch, crc);
+
+            batch.putInt((int) crc.getValue());
+            batch.flip();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeBatch(FileChannel channel, ByteBuffer batch, CRC32 crc) throws IOException {
+        batch.flip();
+        crc.update(batch.array(), 0, batch.limit());
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Bulk load the values of a snapshot into an empty tree.
+     *
+     * @return the sequence number stored in the snapshot.
+     * @throws IOException
+     *             if the file is not a complete snapshot for this codec. The
+     *             tree may then be partly loaded.
+     */
+    public static <T extends Comparable<T>> long load(Path file, KeyCodec<T> codec, BTree<T> into) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            SnapshotReader<T> reader = new SnapshotReader<T>(channel, codec);
+            try {
+                into.bulkLoad(reader, LOAD_FILL_FACTOR);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            reader.checkComplete();
+            return reader.sequence;
+        }
+    }
+
+    /**
+     * Iterator over the keys of a snapshot, reading the file in batches.
+     */
+    private static final class SnapshotReader<T extends Comparable<T>> implements Iterator<T> {
+        private final FileChannel channel;
+        private final KeyCodec<T> codec;
+        private final int keySize;
+        private final ByteBuffer batch;
+        private final CRC32 crc = new CRC32();
+        private final long sequence;
+        private final long count;
+        private long read = 0;
+
+        SnapshotReader(FileChannel channel, KeyCodec<T> codec) throws IOException {
+            this.channel = channel;
+            this.codec = codec;
+            this.keySize = codec.size();
+            this.batch = ByteBuffer.allocate(Math.max(HEADER, (BATCH / keySize) * keySize));
+
+            batch.limit(HEADER);
+            fill();
+            if (batch.remaining() < HEADER || batch.getInt() != MAGIC) {
+                throw new IOException("Not a BTree snapshot");
+            }
+            if (batch.getInt() != keySize) {
+                throw new IOException("The snapshot was written with another key size");
+            }
+            sequence = batch.getLong();
+            count = batch.getLong();
+            batch.clear().limit(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return read < count;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            if (batch.remaining() < keySize) {
+                try {
+                    batch.clear().limit((int) Math.min(batch.capacity(), (count - read) * keySize));
+                    fill();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (batch.remaining() < keySize) {
+                    throw new UncheckedIOException(new IOException("The snapshot is truncated"));
+                }
+            }
+
+            T value = codec.read(batch, batch.position());
+            batch.position(batch.position() + keySize);
+            read++;
+            return value;
+        }
+
+        void checkComplete() throws IOException {
+            if (read != count) {
+                throw new IOException("The snapshot holds more values than were loaded");
+            }
+
+            batch.clear().limit(Integer.BYTES);
+            ByteBuffer trailer = batch;
+            while (trailer.hasRemaining() && channel.read(trailer) >= 0) {
+            }
+            if (trailer.position() < Integer.BYTES || trailer.getInt(0) != (int) crc.getValue()) {
+                throw new IOException("The snapshot is corrupt");
+            }
+        }
+
+        // Read up to the limit, checksumming what was read, and flip
+        private void fill() throws IOException {
+            while (batch.hasRemaining() && channel.read(batch) >= 0) {
+            }
+            batch.flip();
+            crc.update(batch.array(), 0, batch.limit());
+        }
+    }
+}
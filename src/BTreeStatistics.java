@@ -0,0 +1,97 @@
+/**
+ * Structural counters of a {@link BTree}. A tree only counts while its
+ * statistics are enabled; getStatistics() returns an immutable copy of the
+ * counters together with the current height and fill factor.
+ */
+public final class BTreeStatistics {
+
+    long inserts = 0;
+    long removes = 0;
+    long lookups = 0;
+    long comparisons = 0;
+    long splits = 0;
+    long newRoots = 0;
+    private int height = 0;
+    private long nodes = 0;
+    private double fillFactor = 0;
+
+    BTreeStatistics() {
+    }
+
+    BTreeStatistics snapshot(int height, long nodes, double fillFactor) {
+        BTreeStatistics copy = new BTreeStatistics();
+        copy.inserts = inserts;
+        copy.removes = removes;
+        copy.lookups = lookups;
+        copy.comparisons = comparisons;
+        copy.splits = splits;
+        copy.newRoots = newRoots;
+        copy.height = height;
+        copy.nodes = nodes;
+        copy.fillFactor = fillFactor;
+        return copy;
+    }
+
+    public long getInserts() {
+        return inserts;
+    }
+
+    public long getRemoves() {
+        return removes;
+    }
+
+    public long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * @return the number of key comparisons made by inserts, removes, lookups,
+     *         the seeks of cursors and range scans, and the splitting of
+     *         spliterators.
+     */
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    public double getComparisonsPerOperation() {
+        long operations = inserts + removes + lookups;
+        return operations == 0 ? 0 : (double) comparisons / operations;
+    }
+
+    public long getSplits() {
+        return splits;
+    }
+
+    /**
+     * @return the number of splits of the root, each of which made the tree
+     *         one level higher.
+     */
+    public long getNewRoots() {
+        return newRoots;
+    }
+
+    /**
+     * @return the number of levels, 0 for an empty tree.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the fraction of the key slots of all nodes that are in use.
+     */
+    public double getFillFactor() {
+        return fillFactor;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BTreeStatistics[inserts=%d, removes=%d, lookups=%d, comparisons/op=%.2f, splits=%d, "
+                + "newRoots=%d, height=%d, nodes=%d, fillFactor=%.3f]", inserts, removes, lookups,
+                getComparisonsPerOperation(), splits, newRoots, height, nodes, fillFactor);
+    }
+}
@@ -1,13 +1,184 @@
+import java.util.Arrays;
 import java.util.List;
 
 public class BacktrackingAVL extends AVLTree {
 
-	//You are to implement the function Backtrack.
+    // Undo journal, one entry per insert: the new leaf, and the root and case
+    // of the rotation that rebalanced the tree if there was one. An AVL insert
+    // rotates at most once, and the heights are recomputed on the way back up,
+    // so nothing else has to be recorded. The entries are kept in parallel
+    // arrays, so recording and undoing allocate nothing once the arrays have
+    // grown.
+    private Node[] insertedNodes = new Node[16];
+    private Node[] rotatedRoots = new Node[16];
+    private ImbalanceCases[] imbalances = new ImbalanceCases[16];
+    private int journalSize = 0;
+    // Checkpoint clock: one tick per insert, back one per backtrack, and one
+    // extra tick whenever the journal is emptied. The oldest checkpoint that
+    // can still be rolled back to is logged - journalSize.
+    private long logged = 0;
+
+    @Override
+    public void insert(int value) {
+        if (journalSize == insertedNodes.length) {
+            int capacity = 2 * journalSize;
+            insertedNodes = Arrays.copyOf(insertedNodes, capacity);
+            rotatedRoots = Arrays.copyOf(rotatedRoots, capacity);
+            imbalances = Arrays.copyOf(imbalances, capacity);
+        }
+
+        rotatedRoots[journalSize] = null;
+        imbalances[journalSize] = null;
+        super.insert(value);
+        journalSize++;
+        logged++;
+    }
+
+    /**
+     * Delete the value. A delete cannot be backtracked, so it also empties the
+     * journal: the inserts made before it can no longer be undone, and
+     * earlier checkpoints become invalid.
+     */
+    @Override
+    public boolean delete(int value) {
+        boolean deleted = super.delete(value);
+        if (deleted) {
+            clearJournal();
+        }
+        return deleted;
+    }
+
+    /**
+     * Join, split and the set operations cannot be backtracked either, and
+     * empty the journal like delete.
+     */
+    @Override
+    protected void bulkModified() {
+        clearJournal();
+    }
+
+    @Override
+    protected AVLTree newTree() {
+        return new BacktrackingAVL();
+    }
+
+    private void clearJournal() {
+        int used = Math.min(journalSize + 1, insertedNodes.length);
+        Arrays.fill(insertedNodes, 0, used, null);
+        Arrays.fill(rotatedRoots, 0, used, null);
+        Arrays.fill(imbalances, 0, used, null);
+        journalSize = 0;
+        // Put every earlier checkpoint below the oldest valid one
+        logged++;
+    }
+
+    @Override
+    protected void nodeInserted(Node node) {
+        insertedNodes[journalSize] = node;
+    }
+
+    @Override
+    protected void rebalanced(Node subtreeRoot, ImbalanceCases imbalance) {
+        rotatedRoots[journalSize] = subtreeRoot;
+        imbalances[journalSize] = imbalance;
+    }
+
+    /**
+     * Undo the last insert that was not undone yet, leaving the tree exactly
+     * as it was before it. This costs at most two rotations plus a height
+     * update along one path, and allocates nothing. Does nothing if there is
+     * no insert to undo.
+     */
     public void Backtrack() {
-        IntegrityStatement.signature(); // Reminder!
-        throw new UnsupportedOperationException("You should implement this");
-    } 
-    
+        if (journalSize == 0) {
+            return;
+        }
+
+        journalSize--;
+        logged--;
+        Node inserted = insertedNodes[journalSize];
+        Node rotatedRoot = rotatedRoots[journalSize];
+        ImbalanceCases imbalance = imbalances[journalSize];
+        insertedNodes[journalSize] = null;
+        rotatedRoots[journalSize] = null;
+        imbalances[journalSize] = null;
+
+        if (rotatedRoot != null) {
+            undoRotation(rotatedRoot, imbalance);
+        }
+
+        // The new node is a leaf again, detach it
+        Node parent = inserted.parent;
+        replaceChild(parent, inserted, null);
+        inserted.parent = null;
+
+        for (Node n = parent; n != null; n = n.parent) {
+            updateHeight(n);
+        }
+    }
+
+    /**
+     * @return a checkpoint of the current state, to be passed to rollbackTo.
+     */
+    public long checkpoint() {
+        return logged;
+    }
+
+    /**
+     * Undo every insert made since the checkpoint was taken, in O(k) for k
+     * inserts.
+     *
+     * @throws IllegalStateException
+     *             if the journal was emptied since the checkpoint was taken.
+     */
+    public void rollbackTo(long checkpoint) {
+        if (checkpoint < 0 || checkpoint > logged) {
+            throw new IllegalArgumentException("Unknown checkpoint: " + checkpoint);
+        }
+        if (checkpoint < logged - journalSize) {
+            throw new IllegalStateException("Checkpoint " + checkpoint + " is older than the undo journal");
+        }
+
+        while (logged > checkpoint) {
+            Backtrack();
+        }
+    }
+
+    // Apply the inverse rotations of the ones insertNode made for imbalance.
+    private void undoRotation(Node rotatedRoot, ImbalanceCases imbalance) {
+        Node parent = rotatedRoot.parent;
+        Node restored;
+
+        switch (imbalance) {
+            case LEFT_LEFT:
+                restored = leftRotate(rotatedRoot);
+                break;
+            case RIGHT_RIGHT:
+                restored = rightRotate(rotatedRoot);
+                break;
+            case LEFT_RIGHT:
+                restored = leftRotate(rotatedRoot);
+                restored.left = rightRotate(restored.left);
+                break;
+            default: // RIGHT_LEFT
+                restored = rightRotate(rotatedRoot);
+                restored.right = leftRotate(restored.right);
+                break;
+        }
+
+        replaceChild(parent, rotatedRoot, restored);
+    }
+
+    private void replaceChild(Node parent, Node child, Node replacement) {
+        if (parent == null) {
+            root = replacement;
+        } else if (parent.left == child) {
+            parent.left = replacement;
+        } else {
+            parent.right = replacement;
+        }
+    }
+
     //Change the list returned to a list of integers answering the requirements
     public static List<Integer> AVLTreeBacktrackingCounterExample(){
         IntegrityStatement.signature(); // Reminder!
@@ -1,13 +1,217 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.List;
 
+@SuppressWarnings("unchecked")
 public class BacktrackingBTree<T extends Comparable<T>> extends BTree<T> {
 
-	//You are to implement the function Backtrack.
-	public void Backtrack() {
-	    IntegrityStatement.signature(); // Reminder!
-	    throw new UnsupportedOperationException("You should implement this");
+    /**
+     * Depth of the undo log when none is given. Pass Integer.MAX_VALUE to
+     * the constructor to keep every insert undoable.
+     */
+    public static final int DEFAULT_LOG_DEPTH = 1 << 16;
+
+    // Undo log, newest insert last. When it holds maxLogDepth entries, the
+    // oldest one is dropped and that insert can no longer be undone.
+    private final ArrayDeque<Insertion<T>> log = new ArrayDeque<>();
+    private final int maxLogDepth;
+    // Checkpoint clock: one tick per insert, back one per backtrack, and one
+    // extra tick whenever the log is emptied. The oldest checkpoint that can
+    // still be rolled back to is logged - log.size().
+    private long logged = 0;
+    private Insertion<T> pending = null;
+
+    /**
+     * Default Constructor for a 2-3 B-Tree that can undo its last
+     * DEFAULT_LOG_DEPTH inserts.
+     */
+    public BacktrackingBTree() {
+        this(2);
+    }
+
+    /**
+     * Constructor for a B-Tree of the given order that can undo its last
+     * DEFAULT_LOG_DEPTH inserts.
+     */
+    public BacktrackingBTree(int order) {
+        this(order, DEFAULT_LOG_DEPTH);
+    }
+
+    /**
+     * Constructor for a B-Tree of the given order that can undo its last
+     * maxLogDepth inserts.
+     *
+     * @param maxLogDepth
+     *            the number of inserts kept in the undo log, or
+     *            Integer.MAX_VALUE to keep all of them.
+     */
+    public BacktrackingBTree(int order, int maxLogDepth) {
+        super(order);
+        if (maxLogDepth < 1) {
+            throw new IllegalArgumentException("Illegal log depth: " + maxLogDepth);
+        }
+        this.maxLogDepth = maxLogDepth;
+    }
+
+    @Override
+    public void insert(T value) {
+        pending = new Insertion<T>(value);
+        super.insert(value);
+
+        if (log.size() == maxLogDepth) {
+            log.pollFirst();
+        }
+        log.addLast(pending);
+        logged++;
+        pending = null;
+    }
+
+    /**
+     * Remove the value. A remove cannot be backtracked, so it also empties the
+     * undo log: the inserts made before it can no longer be undone, and
+     * earlier checkpoints become invalid.
+     */
+    @Override
+    public boolean remove(T value) {
+        boolean removed = super.remove(value);
+        if (removed) {
+            log.clear();
+            // Put every earlier checkpoint below the oldest valid one
+            logged++;
+        }
+        return removed;
+    }
+
+    /**
+     * Insert the values one at a time, so that each of them is logged and
+     * can be undone on its own.
+     */
+    @Override
+    protected void insertSorted(T[] sorted) {
+        for (T value : sorted) {
+            insert(value);
+        }
+    }
+
+    @Override
+    protected void keyInserted(Node<T> leaf, T value) {
+        if (pending != null) {
+            pending.leaf = leaf;
+        }
+    }
+
+    @Override
+    protected void nodeSplit(Node<T> node, T medianValue, Node<T> right, boolean newRoot) {
+        if (pending != null) {
+            pending.addSplit(node, medianValue);
+        }
     }
-	
+
+    /**
+     * Undo the last insert that was not undone yet: remove the value from its
+     * leaf, then merge the nodes it split back together in reverse order. Only
+     * the nodes the insert touched are changed. Does nothing if there is no
+     * insert left in the log.
+     */
+    public void Backtrack() {
+        Insertion<T> last = log.pollLast();
+        if (last == null) {
+            return;
+        }
+        logged--;
+
+        last.leaf.removeKey(last.value);
+        for (int i = last.numOfSplits - 1; i >= 0; i--) {
+            unsplit(last.splitNodes[i], last.medians[i]);
+        }
+
+        if (root.getNumberOfKeys() == 0) {
+            root = null;
+        }
+        size--;
+        filterKeyRemoved();
+    }
+
+    /**
+     * @return a checkpoint of the current state, to be passed to rollbackTo.
+     */
+    public long checkpoint() {
+        return logged;
+    }
+
+    /**
+     * Undo every insert made since the checkpoint was taken, in O(k) for k
+     * inserts.
+     *
+     * @throws IllegalStateException
+     *             if some of these inserts were already dropped from the log.
+     */
+    public void rollbackTo(long checkpoint) {
+        if (checkpoint < 0 || checkpoint > logged) {
+            throw new IllegalArgumentException("Unknown checkpoint: " + checkpoint);
+        }
+        if (checkpoint < logged - log.size()) {
+            throw new IllegalStateException("Checkpoint " + checkpoint + " is older than the undo log");
+        }
+
+        while (logged > checkpoint) {
+            Backtrack();
+        }
+    }
+
+    /**
+     * Merge a node with the right sibling that a split created, pulling the
+     * median back down from the parent.
+     */
+    private void unsplit(Node<T> node, T medianValue) {
+        Node<T> parent = node.parent;
+        int childIdx = parent.indexOf(node);
+        if (parent.getKey(childIdx).compareTo(medianValue) != 0) {
+            throw new IllegalStateException("The tree was changed outside the undo log");
+        }
+
+        Node<T> right = parent.removeChild(childIdx + 1);
+        node.addKey(node.getNumberOfKeys(), parent.removeKey(childIdx));
+        right.moveTail(0, node);
+        if (right == rightmostLeaf) {
+            rightmostLeaf = null;
+        }
+
+        if (parent == root && parent.getNumberOfKeys() == 0) {
+            // The split had grown a new root
+            root = node;
+            node.parent = null;
+        }
+    }
+
+    // Log entry of one insert: the leaf that received the value and the splits
+    // made on the way down, top-down.
+    private static final class Insertion<T extends Comparable<T>> {
+        private static final Node<?>[] NO_NODES = new Node<?>[0];
+        private static final Comparable<?>[] NO_MEDIANS = new Comparable<?>[0];
+
+        final T value;
+        Node<T> leaf = null;
+        Node<T>[] splitNodes = (Node<T>[]) NO_NODES;
+        T[] medians = (T[]) NO_MEDIANS;
+        int numOfSplits = 0;
+
+        Insertion(T value) {
+            this.value = value;
+        }
+
+        void addSplit(Node<T> node, T medianValue) {
+            if (numOfSplits == splitNodes.length) {
+                int capacity = Math.max(2, 2 * numOfSplits);
+                splitNodes = Arrays.copyOf(splitNodes, capacity);
+                medians = Arrays.copyOf(medians, capacity);
+            }
+            splitNodes[numOfSplits] = node;
+            medians[numOfSplits] = medianValue;
+            numOfSplits++;
+        }
+    }
+
 	//Change the list returned to a list of integers answering the requirements
 	public static List<Integer> BTreeBacktrackingCounterExample(){
 	    IntegrityStatement.signature(); // Reminder!
@@ -0,0 +1,231 @@
+/**
+ * Blocked Bloom filter: every key sets its bits inside one 512-bit block, the
+ * size of a cache line, so a lookup touches a single line of memory. Keys are
+ * hashed by hashCode(), so keys that compare as equal must have equal hash
+ * codes.
+ *
+ * A Bloom filter cannot forget a key. A removed key stays in the filter and
+ * only makes false positives more likely; removedKey() counts it so the owner
+ * knows when to rebuild.
+ */
+public class BlockedBloomFilter {
+
+    private static final int BLOCK_BITS = 512;
+    private static final int BLOCK_LONGS = BLOCK_BITS / Long.SIZE;
+    private static final int MAX_HASH_FUNCTIONS = 16;
+
+    private final long[] bits;
+    private final int blocks;
+    private final int hashFunctions;
+    private final int capacity;
+    private final double falsePositiveRate;
+
+    private long keys = 0;
+    private long staleKeys = 0;
+    private long lookups = 0;
+    private long negatives = 0;
+    private long falsePositives = 0;
+
+    /**
+     * @param capacity
+     *            the number of keys the filter is sized for.
+     * @param falsePositiveRate
+     *            the target false-positive rate at capacity, in (0, 1).
+     */
+    public BlockedBloomFilter(int capacity, double falsePositiveRate) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("Illegal false positive rate: " + falsePositiveRate);
+        }
+
+        double bitsPerKey = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long totalBits = (long) Math.ceil(capacity * bitsPerKey);
+        this.blocks = (int) Math.max(1, (totalBits + BLOCK_BITS - 1) / BLOCK_BITS);
+        this.bits = new long[blocks * BLOCK_LONGS];
+        this.hashFunctions = (int) Math.max(1, Math.min(MAX_HASH_FUNCTIONS, Math.round(bitsPerKey * Math.log(2))));
+        this.capacity = capacity;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public void add(Object key) {
+        long hash = mix(key.hashCode());
+        int base = block(hash) * BLOCK_LONGS;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+
+        for (int i = 0; i < hashFunctions; i++) {
+            int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+            bits[base + (bit >>> 6)] |= 1L << bit;
+        }
+        keys++;
+    }
+
+    /**
+     * @return false if the key was certainly never added, true if it may have
+     *         been.
+     */
+    public boolean mightContain(Object key) {
+        lookups++;
+        long hash = mix(key.hashCode());
+        int base = block(hash) * BLOCK_LONGS;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+
+        for (int i = 0; i < hashFunctions; i++) {
+            int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+            if ((bits[base + (bit >>> 6)] & (1L << bit)) == 0) {
+                negatives++;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record that a key that passed mightContain was not found.
+     */
+    public void falsePositive() {
+        falsePositives++;
+    }
+
+    /**
+     * Record that a key was removed from the set the filter describes.
+     */
+    public void removedKey() {
+        staleKeys++;
+    }
+
+    /**
+     * @return whether more keys were added than the filter was sized for, so
+     *         that the false-positive rate is above its target.
+     */
+    public boolean isOverloaded() {
+        return keys > capacity;
+    }
+
+    public long getStaleKeys() {
+        return staleKeys;
+    }
+
+    /**
+     * Carry the lookup counters of the filter this one replaces over, so
+     * they survive rebuilds.
+     */
+    public void inheritCounters(BlockedBloomFilter previous) {
+        lookups += previous.lookups;
+        negatives += previous.negatives;
+        falsePositives += previous.falsePositives;
+    }
+
+    // Which block a hash goes to: the high half of the hash, scaled
+    private int block(long hash) {
+        return (int) (((hash >>> 32) * blocks) >>> 32);
+    }
+
+    // Spread the bits of a hash code over a long (the MurmurHash3 finalizer)
+    private static long mix(int hashCode) {
+        long h = hashCode * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public Statistics getStatistics() {
+        return new Statistics(this);
+    }
+
+    /**
+     * Immutable counters and sizing of a filter.
+     */
+    public static final class Statistics {
+        private final int capacity;
+        private final long bits;
+        private final int hashFunctions;
+        private final double targetFalsePositiveRate;
+        private final long keys;
+        private final long staleKeys;
+        private final long lookups;
+        private final long negatives;
+        private final long falsePositives;
+
+        private Statistics(BlockedBloomFilter filter) {
+            capacity = filter.capacity;
+            bits = (long) filter.bits.length * Long.SIZE;
+            hashFunctions = filter.hashFunctions;
+            targetFalsePositiveRate = filter.falsePositiveRate;
+            keys = filter.keys;
+            staleKeys = filter.staleKeys;
+            lookups = filter.lookups;
+            negatives = filter.negatives;
+            falsePositives = filter.falsePositives;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public long getMemoryBytes() {
+            return bits / Byte.SIZE;
+        }
+
+        public double getBitsPerKey() {
+            return keys == 0 ? bits : (double) bits / keys;
+        }
+
+        public int getHashFunctions() {
+            return hashFunctions;
+        }
+
+        public double getTargetFalsePositiveRate() {
+            return targetFalsePositiveRate;
+        }
+
+        /**
+         * @return the number of keys added, including removed ones.
+         */
+        public long getKeys() {
+            return keys;
+        }
+
+        public long getStaleKeys() {
+            return staleKeys;
+        }
+
+        public long getLookups() {
+            return lookups;
+        }
+
+        /**
+         * @return the number of lookups the filter answered by itself.
+         */
+        public long getNegatives() {
+            return negatives;
+        }
+
+        public long getFalsePositives() {
+            return falsePositives;
+        }
+
+        /**
+         * @return the fraction of lookups of absent keys that the filter let
+         *         through.
+         */
+        public double getObservedFalsePositiveRate() {
+            long absent = negatives + falsePositives;
+            return absent == 0 ? 0 : (double) falsePositives / absent;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("BloomFilterStatistics[capacity=%d, memoryBytes=%d, bitsPerKey=%.1f, hashFunctions=%d, "
+                    + "keys=%d, staleKeys=%d, lookups=%d, negatives=%d, falsePositives=%d, observedFpp=%.4f, targetFpp=%.4f]",
+                    capacity, getMemoryBytes(), getBitsPerKey(), hashFunctions, keys, staleKeys, lookups, negatives,
+                    falsePositives, getObservedFalsePositiveRate(), targetFalsePositiveRate);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Page store that caches at most a fixed number of pages of a file in
+ * memory, unlike {@link MappedPageStore} which leaves that to the operating
+ * system. The memory use is bounded by the budget, and the hit and miss
+ * counters show how well a working set fits in it.
+ *
+ * Each cached page sits in a frame. A pinned frame is never evicted. When a
+ * page that is not cached is needed, a CLOCK hand sweeps the frames and gives
+ * every unpinned frame that was used since its last visit a second chance.
+ * The first frame without one is evicted, and written back if it is dirty.
+ */
+public class BufferPool implements PageStore {
+
+    private static final int EMPTY = -1;
+
+    private final FileChannel channel;
+    private final int pageSize;
+    private int pageCount;
+
+    // Frames, in parallel arrays
+    private final ByteBuffer[] frames;
+    private final int[] framePages;
+    private final int[] pinCounts;
+    private final boolean[] dirty;
+    private final boolean[] referenced;
+    private final Map<Integer, Integer> pageTable = new HashMap<>();
+    private int clockHand = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long writeBacks = 0;
+
+    /**
+     * Open the file, creating it if it does not exist.
+     *
+     * @param pageSize
+     *            the size of a page in bytes.
+     * @param capacity
+     *            the number of pages kept in memory.
+     */
+    public BufferPool(Path file, int pageSize, int capacity) throws IOException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Illegal page size: " + pageSize);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.pageSize = pageSize;
+        this.pageCount = (int) (channel.size() / pageSize);
+
+        frames = new ByteBuffer[capacity];
+        for (int i = 0; i < capacity; i++) {
+            frames[i] = ByteBuffer.allocateDirect(pageSize);
+        }
+        framePages = new int[capacity];
+        Arrays.fill(framePages, EMPTY);
+        pinCounts = new int[capacity];
+        dirty = new boolean[capacity];
+        referenced = new boolean[capacity];
+    }
+
+    @Override
+    public int pageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public int pageCount() {
+        return pageCount;
+    }
+
+    /**
+     * @return the number of pages that can be cached.
+     */
+    public int capacity() {
+        return frames.length;
+    }
+
+    @Override
+    public int allocate() {
+        int frame = evict();
+        int pageId = pageCount++;
+
+        ByteBuffer page = frames[frame];
+        page.clear();
+        while (page.hasRemaining()) {
+            page.put((byte) 0);
+        }
+
+        framePages[frame] = pageId;
+        dirty[frame] = true;
+        referenced[frame] = true;
+        pageTable.put(pageId, frame);
+        return pageId;
+    }
+
+    /**
+     * @throws IllegalStateException
+     *             if the page is not cached and every frame is pinned.
+     */
+    @Override
+    public ByteBuffer pin(int pageId) {
+        if (pageId < 0 || pageId >= pageCount) {
+            throw new IllegalArgumentException("No such page: " + pageId);
+        }
+
+        Integer cached = pageTable.get(pageId);
+        int frame;
+        if (cached != null) {
+            hits++;
+            frame = cached;
+        } else {
+            misses++;
+            frame = evict();
+            read(pageId, frames[frame]);
+            framePages[frame] = pageId;
+            dirty[frame] = false;
+            pageTable.put(pageId, frame);
+        }
+
+        pinCounts[frame]++;
+        referenced[frame] = true;
+        return frames[frame].duplicate().clear();
+    }
+
+    @Override
+    public void unpin(int pageId, boolean dirty) {
+        Integer frame = pageTable.get(pageId);
+        if (frame == null || pinCounts[frame] == 0) {
+            throw new IllegalStateException("Page " + pageId + " is not pinned");
+        }
+
+        pinCounts[frame]--;
+        this.dirty[frame] |= dirty;
+    }
+
+    /**
+     * Free a frame, writing its page back if it is dirty.
+     *
+     * @return the index of the free frame.
+     */
+    private int evict() {
+        // Two full turns clear every second chance
+        for (int i = 0; i < 2 * frames.length; i++) {
+            int frame = clockHand;
+            clockHand = (clockHand + 1) % frames.length;
+
+            if (framePages[frame] == EMPTY) {
+                return frame;
+            }
+            if (pinCounts[frame] > 0) {
+                continue;
+            }
+            if (referenced[frame]) {
+                referenced[frame] = false;
+                continue;
+            }
+
+            if (dirty[frame]) {
+                write(framePages[frame], frames[frame]);
+                dirty[frame] = false;
+            }
+            pageTable.remove(framePages[frame]);
+            framePages[frame] = EMPTY;
+            evictions++;
+            return frame;
+        }
+
+        throw new IllegalStateException("All " + frames.length + " pages of the buffer pool are pinned");
+    }
+
+    private void read(int pageId, ByteBuffer page) {
+        page.clear();
+        try {
+            long position = (long) pageId * pageSize;
+            while (page.hasRemaining()) {
+                if (channel.read(page, position + page.position()) < 0) {
+                    // Allocated but never written, so still zero
+                    while (page.hasRemaining()) {
+                        page.put((byte) 0);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(int pageId, ByteBuffer page) {
+        page.clear();
+        try {
+            long position = (long) pageId * pageSize;
+            while (page.hasRemaining()) {
+                channel.write(page, position + page.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writeBacks++;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        for (int frame = 0; frame < frames.length; frame++) {
+            if (framePages[frame] != EMPTY && dirty[frame]) {
+                write(framePages[frame], frames[frame]);
+                dirty[frame] = false;
+            }
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    /**
+     * @return the number of pins that found their page cached.
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of pins that had to read their page from the file.
+     */
+    public long misses() {
+        return misses;
+    }
+
+    public double hitRatio() {
+        long pins = hits + misses;
+        return pins == 0 ? 0 : (double) hits / pins;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of dirty pages written to the file, by eviction or
+     *         by flush.
+     */
+    public long writeBacks() {
+        return writeBacks;
+    }
+
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+        writeBacks = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BufferPool[capacity=%d, hits=%d, misses=%d, hitRatio=%.3f, evictions=%d, writeBacks=%d]",
+                frames.length, hits, misses, hitRatio(), evictions, writeBacks);
+    }
+}
@@ -0,0 +1,321 @@
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe B-Tree with a latch per node.
+ *
+ * Insertion is the preemptive-split descent of {@link BTree}: a full node is
+ * split before the insertion goes below it, so it never has to climb back up
+ * to a parent. Writers therefore crab down the tree and hold at most a parent
+ * and a child latch at a time:
+ * <ul>
+ * <li>First they try with shared latches on the internal nodes and an
+ * exclusive latch on the leaf only. This works whenever the leaf is not full.
+ * <li>Otherwise they descend again with exclusive latches and split every full
+ * node on the way.
+ * </ul>
+ *
+ * contains first reads optimistically: it takes a version stamp for each node,
+ * reads it without latching, and validates the stamp before trusting what it
+ * read. After a few failed attempts it falls back to shared-latch crabbing.
+ */
+@SuppressWarnings("unchecked")
+public class ConcurrentBTree<T extends Comparable<T>> {
+
+    private static final int OPTIMISTIC_ATTEMPTS = 4;
+
+    // Results of an optimistic lookup
+    private static final int ABSENT = 0;
+    private static final int FOUND = 1;
+    private static final int RETRY = 2;
+
+    final private int maxDegree;
+
+    // Never null: an empty tree is an empty leaf
+    protected volatile Node<T> root;
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Default Constructor for a 2-3 B-Tree.
+     */
+    public ConcurrentBTree() {
+        this(2);
+    }
+
+    /**
+     * Constructor for B-Tree of ordered parameter. Order here means minimum
+     * number of children in a non-root node.
+     *
+     * @param order
+     *            the minimal degree of a node of the B-Tree.
+     */
+    public ConcurrentBTree(int order) {
+        if (order < 2) {
+            throw new IllegalArgumentException("Illegal BTree order: " + order);
+        }
+
+        maxDegree = 2 * order;
+        root = new Node<T>(maxDegree, true);
+    }
+
+    /**
+     * Insert the value into this BTree
+     *
+     * @param value - the inserted value
+     */
+    public void insert(T value) {
+        if (!insertIntoLeaf(value)) {
+            insertWithSplits(value);
+        }
+        size.increment();
+    }
+
+    /**
+     * Descend with shared latches and add the value to its leaf under an
+     * exclusive latch.
+     *
+     * @return false, without changing anything, if the leaf is full and has to
+     *         be split first.
+     */
+    private boolean insertIntoLeaf(T value) {
+        Node<T> node = root;
+        long stamp = node.leaf ? node.latch.writeLock() : node.latch.readLock();
+        if (node != root) {
+            node.latch.unlock(stamp);
+            return false;
+        }
+
+        while (!node.leaf) {
+            Node<T> child = node.children[node.getValuePosition(value)];
+            long childStamp = child.leaf ? child.latch.writeLock() : child.latch.readLock();
+            node.latch.unlockRead(stamp);
+            node = child;
+            stamp = childStamp;
+        }
+
+        boolean added = !isFull(node);
+        if (added) {
+            node.addKey(node.getValuePosition(value), value);
+        }
+        node.latch.unlockWrite(stamp);
+        return added;
+    }
+
+    /**
+     * Descend with exclusive latches, splitting every full node on the way.
+     */
+    private void insertWithSplits(T value) {
+        Node<T> node;
+        long stamp;
+        do {
+            node = root;
+            stamp = node.latch.writeLock();
+            if (node != root) {
+                node.latch.unlockWrite(stamp);
+                node = null;
+            }
+        } while (node == null);
+
+        if (isFull(node)) {
+            // Grow a new root above the full one
+            Node<T> newRoot = new Node<T>(maxDegree, false);
+            long rootStamp = newRoot.latch.writeLock();
+            newRoot.children[0] = node;
+            split(newRoot, 0, node);
+            root = newRoot;
+            node.latch.unlockWrite(stamp);
+            node = newRoot;
+            stamp = rootStamp;
+        }
+
+        while (!node.leaf) {
+            int idx = node.getValuePosition(value);
+            Node<T> child = node.children[idx];
+            long childStamp = child.latch.writeLock();
+
+            if (isFull(child)) {
+                Node<T> right = split(node, idx, child);
+                if (value.compareTo(node.keys[idx]) > 0) {
+                    long rightStamp = right.latch.writeLock();
+                    child.latch.unlockWrite(childStamp);
+                    child = right;
+                    childStamp = rightStamp;
+                }
+            }
+
+            node.latch.unlockWrite(stamp);
+            node = child;
+            stamp = childStamp;
+        }
+
+        node.addKey(node.getValuePosition(value), value);
+        node.latch.unlockWrite(stamp);
+    }
+
+    /**
+     * Split a full child in its median value. The child keeps the lower half
+     * and a new right sibling takes the upper half. The caller holds the
+     * exclusive latches of both the parent and the child.
+     *
+     * @return the new right sibling.
+     */
+    private Node<T> split(Node<T> parent, int childIdx, Node<T> child) {
+        int numberOfKeys = child.numOfKeys;
+        int medianIndex = numberOfKeys / 2;
+        T medianValue = child.keys[medianIndex];
+
+        Node<T> right = new Node<T>(maxDegree, child.leaf);
+        right.numOfKeys = numberOfKeys - medianIndex - 1;
+        System.arraycopy(child.keys, medianIndex + 1, right.keys, 0, right.numOfKeys);
+        if (!child.leaf) {
+            System.arraycopy(child.children, medianIndex + 1, right.children, 0, right.numOfKeys + 1);
+        }
+        for (int i = medianIndex; i < numberOfKeys; i++) {
+            child.keys[i] = null;
+            if (!child.leaf) {
+                child.children[i + 1] = null;
+            }
+        }
+        child.numOfKeys = medianIndex;
+
+        parent.addKey(childIdx, medianValue);
+        System.arraycopy(parent.children, childIdx + 1, parent.children, childIdx + 2, parent.numOfKeys - childIdx - 1);
+        parent.children[childIdx + 1] = right;
+
+        return right;
+    }
+
+    private boolean isFull(Node<T> node) {
+        return node.numOfKeys == maxDegree - 1;
+    }
+
+    public boolean contains(T value) {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            int result = containsOptimistic(value);
+            if (result != RETRY) {
+                return result == FOUND;
+            }
+        }
+        return containsLatched(value);
+    }
+
+    /**
+     * Look the value up without latching. Every node is read under a version
+     * stamp, and a child is only trusted once the stamp of its parent still
+     * validates after the child's stamp was taken. The fields may be
+     * inconsistent while a writer is active, so nothing read is used before it
+     * is validated.
+     */
+    private int containsOptimistic(T value) {
+        Node<T> node = root;
+        long stamp = node.latch.tryOptimisticRead();
+        if (stamp == 0 || node != root) {
+            return RETRY;
+        }
+
+        while (true) {
+            T[] keys = node.keys;
+            int numOfKeys = Math.min(node.numOfKeys, keys.length);
+
+            int low = 0;
+            int high = numOfKeys;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                T key = keys[mid];
+                if (key == null) {
+                    return RETRY;
+                }
+                if (value.compareTo(key) > 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            T key = low < numOfKeys ? keys[low] : null;
+            boolean found = key != null && key.compareTo(value) == 0;
+            if (found || node.leaf) {
+                return node.latch.validate(stamp) ? (found ? FOUND : ABSENT) : RETRY;
+            }
+
+            Node<T> child = node.children[low];
+            long childStamp = child == null ? 0 : child.latch.tryOptimisticRead();
+            if (childStamp == 0 || !node.latch.validate(stamp)) {
+                return RETRY;
+            }
+            node = child;
+            stamp = childStamp;
+        }
+    }
+
+    private boolean containsLatched(T value) {
+        Node<T> node;
+        long stamp;
+        do {
+            node = root;
+            stamp = node.latch.readLock();
+            if (node != root) {
+                node.latch.unlockRead(stamp);
+                node = null;
+            }
+        } while (node == null);
+
+        while (true) {
+            int idx = node.getValuePosition(value);
+            boolean found = idx < node.numOfKeys && node.keys[idx].compareTo(value) == 0;
+            if (found || node.leaf) {
+                node.latch.unlockRead(stamp);
+                return found;
+            }
+
+            Node<T> child = node.children[idx];
+            long childStamp = child.latch.readLock();
+            node.latch.unlockRead(stamp);
+            node = child;
+            stamp = childStamp;
+        }
+    }
+
+    public int size() {
+        return size.intValue();
+    }
+
+    protected static class Node<T extends Comparable<T>> {
+
+        final StampedLock latch = new StampedLock();
+        final boolean leaf;  // a node never changes between leaf and internal
+        final T[] keys;
+        final Node<T>[] children;  // null in a leaf
+        int numOfKeys = 0;
+
+        Node(int maxDegree, boolean leaf) {
+            this.leaf = leaf;
+            this.keys = (T[]) new Comparable<?>[maxDegree];
+            this.children = leaf ? null : (Node<T>[]) new Node<?>[maxDegree + 1];
+        }
+
+        /**
+         * @return the index of the first key that is not smaller than value,
+         *         or the number of keys if there is none.
+         */
+        int getValuePosition(T value) {
+            int low = 0;
+            int high = numOfKeys;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (value.compareTo(keys[mid]) > 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        void addKey(int index, T value) {
+            System.arraycopy(keys, index, keys, index + 1, numOfKeys - index);
+            keys[index] = value;
+            numOfKeys++;
+        }
+    }
+}
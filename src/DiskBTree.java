@@ -0,0 +1,334 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * B-Tree whose nodes are fixed-size pages of a {@link PageStore} instead of
+ * heap objects, so the tree can be larger than the heap and can be reopened
+ * after it was closed. Keys are stored in place with a {@link KeyCodec}, and a child is
+ * referenced by its page id.
+ *
+ * Insertion is the preemptive-split descent of {@link BTree}: a full node is
+ * split before the insertion goes below it. Nodes have no parent links, so a
+ * split only rewrites the split page, its new sibling and the parent, and at
+ * most three pages are pinned at a time, which is the smallest budget a
+ * {@link BufferPool} under the tree can have.
+ *
+ * Page 0 holds the metadata of the tree, including its root and size. These
+ * are only written by flush() and close(), while inserts change node pages in
+ * place. A tree that was not flushed after its last insert may therefore
+ * reopen with a stale root over pages that no longer match it; use
+ * {@link DurableBTree} when the tree has to survive a crash.
+ *
+ * A node page is laid out as
+ * <pre>
+ * | leaf flag (4) | number of keys (4) | 2t-1 keys | 2t child page ids (4 each) |
+ * </pre>
+ * Page id 0 therefore never names a node and is used as the null child.
+ */
+public class DiskBTree<T extends Comparable<T>> implements Closeable {
+
+    private static final int MAGIC = 0x42545245;  // "BTRE"
+    private static final int NIL = 0;
+
+    // Metadata page
+    private static final int META_MAGIC = 0;
+    private static final int META_ORDER = 4;
+    private static final int META_KEY_SIZE = 8;
+    private static final int META_ROOT = 12;
+    private static final int META_SIZE = 16;
+
+    // Node pages
+    private static final int LEAF = 0;
+    private static final int NUM_KEYS = 4;
+    private static final int HEADER = 8;
+
+    private final PageStore store;
+    private final KeyCodec<T> codec;
+    private final int maxDegree;
+    private final int keySize;
+    private final int childrenOffset;
+    private final byte[] scratch;
+
+    private int root;
+    private long size;
+
+    /**
+     * Open the tree in the store, or create it if the store is empty. A new
+     * tree gets the largest order whose nodes fit in a page.
+     */
+    public DiskBTree(PageStore store, KeyCodec<T> codec) {
+        this(store, codec, 0);
+    }
+
+    /**
+     * Open the tree in the store, or create it with the given order if the
+     * store is empty.
+     *
+     * @param order
+     *            the minimal degree of a node of the B-Tree, or 0 for the
+     *            largest one whose nodes fit in a page.
+     * @throws IllegalArgumentException
+     *             if the store holds a tree of another order or key size, or
+     *             if a node of this order does not fit in a page.
+     */
+    public DiskBTree(PageStore store, KeyCodec<T> codec, int order) {
+        this.store = store;
+        this.codec = codec;
+        this.keySize = codec.size();
+
+        if (store.pageCount() == 0) {
+            if (order == 0) {
+                order = maxOrder(store.pageSize(), codec);
+            }
+            if (order < 2 || pageSize(order, codec) > store.pageSize()) {
+                throw new IllegalArgumentException("Illegal BTree order for page size " + store.pageSize() + ": " + order);
+            }
+            store.allocate();
+            root = NIL;
+            size = 0;
+            writeMeta(order);
+        } else {
+            ByteBuffer meta = store.pin(0);
+            try {
+                if (meta.getInt(META_MAGIC) != MAGIC) {
+                    throw new IllegalArgumentException("The store does not hold a BTree");
+                }
+                int storedOrder = meta.getInt(META_ORDER);
+                if ((order != 0 && order != storedOrder) || meta.getInt(META_KEY_SIZE) != keySize) {
+                    throw new IllegalArgumentException("The store holds a BTree of order " + storedOrder
+                            + " and key size " + meta.getInt(META_KEY_SIZE));
+                }
+                order = storedOrder;
+                root = meta.getInt(META_ROOT);
+                size = meta.getLong(META_SIZE);
+            } finally {
+                store.unpin(0, false);
+            }
+        }
+
+        this.maxDegree = 2 * order;
+        this.childrenOffset = HEADER + (maxDegree - 1) * keySize;
+        this.scratch = new byte[store.pageSize()];
+    }
+
+    /**
+     * @return the number of bytes a node of this order takes.
+     */
+    public static int pageSize(int order, KeyCodec<?> codec) {
+        return HEADER + (2 * order - 1) * codec.size() + 2 * order * Integer.BYTES;
+    }
+
+    /**
+     * @return the largest order whose nodes fit in a page of pageSize bytes.
+     */
+    public static int maxOrder(int pageSize, KeyCodec<?> codec) {
+        return (pageSize - HEADER + codec.size()) / (2 * (codec.size() + Integer.BYTES));
+    }
+
+    /**
+     * Insert the value into this BTree
+     *
+     * @param value - the inserted value
+     */
+    public void insert(T value) {
+        if (root == NIL) {
+            root = allocateNode(true);
+        }
+
+        int nodeId = root;
+        ByteBuffer node = store.pin(nodeId);
+        boolean dirty = false;
+
+        if (isFull(node)) {
+            // Grow a new root above the full one
+            int newRootId = allocateNode(false);
+            ByteBuffer newRoot = store.pin(newRootId);
+            setChild(newRoot, 0, nodeId);
+            split(newRoot, 0, node);
+            store.unpin(nodeId, true);
+            root = newRootId;
+            nodeId = newRootId;
+            node = newRoot;
+            dirty = true;
+        }
+
+        while (!isLeaf(node)) {
+            int idx = getValuePosition(node, value);
+            int childId = getChild(node, idx);
+            ByteBuffer child = store.pin(childId);
+            boolean childSplit = isFull(child);
+
+            if (childSplit) {
+                split(node, idx, child);
+                if (codec.compare(node, keyOffset(idx), value) < 0) {
+                    store.unpin(childId, true);
+                    childId = getChild(node, idx + 1);
+                    child = store.pin(childId);
+                }
+            }
+
+            store.unpin(nodeId, dirty || childSplit);
+            nodeId = childId;
+            node = child;
+            dirty = childSplit;
+        }
+
+        addKey(node, getValuePosition(node, value), value);
+        store.unpin(nodeId, true);
+        size++;
+    }
+
+    /**
+     * Split a full child in its median value. The child keeps the lower half,
+     * a new right sibling takes the upper half, and the median moves up to the
+     * parent.
+     */
+    private void split(ByteBuffer parent, int childIdx, ByteBuffer child) {
+        int numberOfKeys = getNumberOfKeys(child);
+        int medianIndex = numberOfKeys / 2;
+        int rightKeys = numberOfKeys - medianIndex - 1;
+        boolean leaf = isLeaf(child);
+
+        int rightId = allocateNode(leaf);
+        ByteBuffer right = store.pin(rightId);
+        copy(child, keyOffset(medianIndex + 1), right, keyOffset(0), rightKeys * keySize);
+        if (!leaf) {
+            copy(child, childOffset(medianIndex + 1), right, childOffset(0), (rightKeys + 1) * Integer.BYTES);
+        }
+        setNumberOfKeys(right, rightKeys);
+        store.unpin(rightId, true);
+
+        // Open a gap for the median and the new child in the parent
+        int parentKeys = getNumberOfKeys(parent);
+        copy(parent, keyOffset(childIdx), parent, keyOffset(childIdx + 1), (parentKeys - childIdx) * keySize);
+        copy(parent, childOffset(childIdx + 1), parent, childOffset(childIdx + 2), (parentKeys - childIdx) * Integer.BYTES);
+        copy(child, keyOffset(medianIndex), parent, keyOffset(childIdx), keySize);
+        setChild(parent, childIdx + 1, rightId);
+        setNumberOfKeys(parent, parentKeys + 1);
+
+        setNumberOfKeys(child, medianIndex);
+    }
+
+    public boolean contains(T value) {
+        int nodeId = root;
+        while (nodeId != NIL) {
+            ByteBuffer node = store.pin(nodeId);
+            int idx = getValuePosition(node, value);
+            boolean found = idx < getNumberOfKeys(node) && codec.compare(node, keyOffset(idx), value) == 0;
+            int next = found || isLeaf(node) ? NIL : getChild(node, idx);
+            store.unpin(nodeId, false);
+
+            if (found) {
+                return true;
+            }
+            nodeId = next;
+        }
+        return false;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Write the metadata and flush the store.
+     */
+    public void flush() throws IOException {
+        writeMeta(maxDegree / 2);
+        store.flush();
+    }
+
+    /**
+     * Write the metadata and close the store.
+     */
+    @Override
+    public void close() throws IOException {
+        writeMeta(maxDegree / 2);
+        store.close();
+    }
+
+    private void writeMeta(int order) {
+        ByteBuffer meta = store.pin(0);
+        meta.putInt(META_MAGIC, MAGIC);
+        meta.putInt(META_ORDER, order);
+        meta.putInt(META_KEY_SIZE, keySize);
+        meta.putInt(META_ROOT, root);
+        meta.putLong(META_SIZE, size);
+        store.unpin(0, true);
+    }
+
+    private int allocateNode(boolean leaf) {
+        int pageId = store.allocate();
+        ByteBuffer page = store.pin(pageId);
+        page.putInt(LEAF, leaf ? 1 : 0);
+        store.unpin(pageId, true);
+        return pageId;
+    }
+
+    /**
+     * @return the index of the first key that is not smaller than value, or
+     *         the number of keys if there is none.
+     */
+    private int getValuePosition(ByteBuffer node, T value) {
+        int low = 0;
+        int high = getNumberOfKeys(node);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (codec.compare(node, keyOffset(mid), value) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void addKey(ByteBuffer node, int index, T value) {
+        int numberOfKeys = getNumberOfKeys(node);
+        copy(node, keyOffset(index), node, keyOffset(index + 1), (numberOfKeys - index) * keySize);
+        codec.write(node, keyOffset(index), value);
+        setNumberOfKeys(node, numberOfKeys + 1);
+    }
+
+    // Copy bytes between or within pages; the ranges may overlap
+    private void copy(ByteBuffer from, int fromOffset, ByteBuffer to, int toOffset, int length) {
+        if (length == 0) {
+            return;
+        }
+        from.duplicate().position(fromOffset).get(scratch, 0, length);
+        to.duplicate().position(toOffset).put(scratch, 0, length);
+    }
+
+    private boolean isFull(ByteBuffer node) {
+        return getNumberOfKeys(node) == maxDegree - 1;
+    }
+
+    private static boolean isLeaf(ByteBuffer node) {
+        return node.getInt(LEAF) != 0;
+    }
+
+    private static int getNumberOfKeys(ByteBuffer node) {
+        return node.getInt(NUM_KEYS);
+    }
+
+    private static void setNumberOfKeys(ByteBuffer node, int numberOfKeys) {
+        node.putInt(NUM_KEYS, numberOfKeys);
+    }
+
+    private int getChild(ByteBuffer node, int index) {
+        return node.getInt(childOffset(index));
+    }
+
+    private void setChild(ByteBuffer node, int index, int pageId) {
+        node.putInt(childOffset(index), pageId);
+    }
+
+    private int keyOffset(int index) {
+        return HEADER + index * keySize;
+    }
+
+    private int childOffset(int index) {
+        return childrenOffset + index * Integer.BYTES;
+    }
+}
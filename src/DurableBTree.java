@@ -0,0 +1,117 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * {@link BTree} that survives a crash. Every change is appended to a
+ * {@link WriteAheadLog} before it is applied, and checkpoint() writes a
+ * {@link BTreeSnapshot} and empties the log. Opening the tree again loads the
+ * latest snapshot and replays the log records that came after it, so
+ * recovery costs one sequential read of the snapshot plus the length of the
+ * log, instead of rebuilding the tree from its source.
+ *
+ * Changes are durable once their group of the log is synced: after every
+ * groupCommitSize changes, and on sync(), checkpoint() and close().
+ */
+public class DurableBTree<T extends Comparable<T>> implements Iterable<T>, Closeable {
+
+    private static final String SNAPSHOT_FILE = "btree.snapshot";
+    private static final String LOG_FILE = "btree.wal";
+
+    private final Path snapshotFile;
+    private final KeyCodec<T> codec;
+    private final BTree<T> tree;
+    private final WriteAheadLog<T> log;
+
+    /**
+     * Open the tree stored in the directory, recovering it from its snapshot
+     * and log, or create an empty one there.
+     *
+     * @param order
+     *            the minimal degree of a node of the B-Tree.
+     * @param groupCommitSize
+     *            the number of changes logged with a single fsync.
+     */
+    public DurableBTree(Path directory, KeyCodec<T> codec, int order, int groupCommitSize) throws IOException {
+        Files.createDirectories(directory);
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        this.codec = codec;
+        this.tree = new BTree<T>(order);
+
+        long sequence = 0;
+        if (Files.exists(snapshotFile)) {
+            sequence = BTreeSnapshot.load(snapshotFile, codec, tree);
+        }
+
+        log = new WriteAheadLog<T>(directory.resolve(LOG_FILE), codec, groupCommitSize);
+        if (log.baseSequence() > sequence) {
+            log.close();
+            throw new IOException("The log starts at " + log.baseSequence() + ", after the snapshot at " + sequence);
+        }
+
+        log.replay(sequence, (operation, key) -> {
+            if (operation == WriteAheadLog.INSERT) {
+                tree.insert(key);
+            } else {
+                tree.remove(key);
+            }
+        });
+
+        if (log.nextSequence() < sequence) {
+            // The log is older than the snapshot, none of it is needed
+            log.reset(sequence);
+        }
+    }
+
+    public void insert(T value) throws IOException {
+        log.append(WriteAheadLog.INSERT, value);
+        tree.insert(value);
+    }
+
+    /**
+     * @return true if the value was in the tree.
+     */
+    public boolean remove(T value) throws IOException {
+        log.append(WriteAheadLog.REMOVE, value);
+        return tree.remove(value);
+    }
+
+    public boolean contains(T value) {
+        return tree.contains(value);
+    }
+
+    public int size() {
+        return tree.size();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return tree.iterator();
+    }
+
+    /**
+     * Make every change so far durable.
+     */
+    public void sync() throws IOException {
+        log.sync();
+    }
+
+    /**
+     * Write a snapshot of the tree and empty the log. If this is interrupted,
+     * recovery still finds either the old snapshot and the full log, or the
+     * new snapshot and log records it skips.
+     */
+    public void checkpoint() throws IOException {
+        log.sync();
+        long sequence = log.nextSequence();
+        BTreeSnapshot.write(tree, codec, sequence, snapshotFile);
+        log.reset(sequence);
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+}
@@ -0,0 +1,204 @@
+import java.util.Arrays;
+
+/**
+ * B-Tree of primitive int keys. It uses the same preemptive-split insertion as
+ * {@link BTree}, but keys are kept in int arrays and compared directly, so
+ * insert and contains neither box nor call compareTo. Leaves do not allocate a
+ * children array.
+ */
+public class IntBTree {
+
+    final private int maxDegree;
+
+    protected Node root = null;
+    protected int size = 0;
+
+    /**
+     * Default Constructor for a 2-3 B-Tree.
+     */
+    public IntBTree() {
+        this(2);
+    }
+
+    /**
+     * Constructor for B-Tree of ordered parameter. Order here means minimum
+     * number of children in a non-root node.
+     *
+     * @param order
+     *            the minimal degree of a node of the B-Tree.
+     */
+    public IntBTree(int order) {
+        if (order < 2) {
+            throw new IllegalArgumentException("Illegal BTree order: " + order);
+        }
+
+        maxDegree = 2 * order;
+    }
+
+    /**
+     * Insert the value into this BTree
+     *
+     * @param value - the inserted value
+     */
+    public void insert(int value) {
+        if (root == null) {
+            root = new Node(maxDegree, true);
+            root.addKey(0, value);
+        } else {
+            Node parent = null;
+            int childIdx = -1;
+            Node currentNode = root;
+            boolean wasAdded = false;
+            while (!wasAdded) {
+
+                // If the node has 2t-1 keys then split it
+                if (currentNode.numOfKeys == maxDegree - 1) {
+                    parent = split(parent, childIdx, currentNode);
+
+                    // Descend from the parent to the half that holds the value
+                    childIdx = parent.getValuePosition(value);
+                    currentNode = parent.children[childIdx];
+                }
+
+                // Descend the tree and add the key to a leaf
+                int idx = currentNode.getValuePosition(value);
+                if (currentNode.isLeaf()) {
+                    currentNode.addKey(idx, value);
+                    wasAdded = true;
+                } else {
+                    parent = currentNode;
+                    childIdx = idx;
+                    currentNode = currentNode.children[idx];
+                }
+            }
+        }
+
+        size++;
+    }
+
+    /**
+     * Split a full node in its median value. The node keeps the lower half and
+     * a new right sibling takes the upper half.
+     *
+     * @param parent
+     *            the parent of the node, or null if it is the root.
+     * @param childIdx
+     *            the position of the node among its parent's children.
+     * @return the node that received the median.
+     */
+    private Node split(Node parent, int childIdx, Node node) {
+        int numberOfKeys = node.numOfKeys;
+        int medianIndex = numberOfKeys / 2;
+        int medianValue = node.keys[medianIndex];
+
+        Node right = new Node(maxDegree, node.isLeaf());
+        right.numOfKeys = numberOfKeys - medianIndex - 1;
+        System.arraycopy(node.keys, medianIndex + 1, right.keys, 0, right.numOfKeys);
+        if (!node.isLeaf()) {
+            System.arraycopy(node.children, medianIndex + 1, right.children, 0, right.numOfKeys + 1);
+            Arrays.fill(node.children, medianIndex + 1, numberOfKeys + 1, null);
+        }
+        node.numOfKeys = medianIndex;
+
+        if (parent == null) {
+            // create a new root
+            parent = new Node(maxDegree, false);
+            parent.children[0] = node;
+            root = parent;
+            childIdx = 0;
+        }
+
+        // Move the median value up to the parent
+        parent.addKey(childIdx, medianValue);
+        parent.addChild(childIdx + 1, right);
+
+        return parent;
+    }
+
+    public boolean contains(int value) {
+        Node node = root;
+        while (node != null) {
+            int idx = node.getValuePosition(value);
+            if (idx < node.numOfKeys && node.keys[idx] == value) {
+                return true;
+            }
+            node = node.isLeaf() ? null : node.children[idx];
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return root == null ? "Empty tree" : toString(root, "", true);
+    }
+
+    private static String toString(Node node, String prefix, boolean isTail) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(prefix).append((isTail ? "~~~ " : "|-- "));
+        for (int i = 0; i < node.numOfKeys; i++) {
+            builder.append(node.keys[i]);
+            if (i < node.numOfKeys - 1)
+                builder.append(", ");
+        }
+        builder.append("\n");
+
+        if (!node.isLeaf()) {
+            for (int i = 0; i <= node.numOfKeys; i++) {
+                builder.append(toString(node.children[i], prefix + (isTail ? "    " : "|   "), i == node.numOfKeys));
+            }
+        }
+
+        return builder.toString();
+    }
+
+    protected static class Node {
+
+        protected final int[] keys;
+        protected int numOfKeys = 0;
+        protected final Node[] children;  // null in a leaf
+
+        Node(int maxDegree, boolean leaf) {
+            this.keys = new int[maxDegree];
+            this.children = leaf ? null : new Node[maxDegree + 1];
+        }
+
+        boolean isLeaf() {
+            return children == null;
+        }
+
+        /**
+         * @return the index of the first key that is not smaller than value,
+         *         or the number of keys if there is none.
+         */
+        int getValuePosition(int value) {
+            int low = 0;
+            int high = numOfKeys;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        void addKey(int index, int value) {
+            System.arraycopy(keys, index, keys, index + 1, numOfKeys - index);
+            keys[index] = value;
+            numOfKeys++;
+        }
+
+        // Called right after addKey, so numOfKeys + 1 children are in use.
+        void addChild(int index, Node child) {
+            System.arraycopy(children, index, children, index + 1, numOfKeys - index);
+            children[index] = child;
+        }
+    }
+}
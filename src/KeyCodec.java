@@ -0,0 +1,72 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-width binary encoding of the keys of a {@link DiskBTree}. Keys are
+ * read and written in place in a page buffer, at absolute offsets.
+ */
+public interface KeyCodec<T extends Comparable<T>> {
+
+    KeyCodec<Integer> INT = new IntCodec();
+    KeyCodec<Long> LONG = new LongCodec();
+
+    /**
+     * @return the number of bytes of an encoded key.
+     */
+    int size();
+
+    void write(ByteBuffer page, int offset, T key);
+
+    T read(ByteBuffer page, int offset);
+
+    /**
+     * Compare the key encoded at offset with another key. Codecs can override
+     * this to compare without decoding the stored key into an object.
+     */
+    default int compare(ByteBuffer page, int offset, T key) {
+        return read(page, offset).compareTo(key);
+    }
+
+    final class IntCodec implements KeyCodec<Integer> {
+        @Override
+        public int size() {
+            return Integer.BYTES;
+        }
+
+        @Override
+        public void write(ByteBuffer page, int offset, Integer key) {
+            page.putInt(offset, key);
+        }
+
+        @Override
+        public Integer read(ByteBuffer page, int offset) {
+            return page.getInt(offset);
+        }
+
+        @Override
+        public int compare(ByteBuffer page, int offset, Integer key) {
+            return Integer.compare(page.getInt(offset), key);
+        }
+    }
+
+    final class LongCodec implements KeyCodec<Long> {
+        @Override
+        public int size() {
+            return Long.BYTES;
+        }
+
+        @Override
+        public void write(ByteBuffer page, int offset, Long key) {
+            page.putLong(offset, key);
+        }
+
+        @Override
+        public Long read(ByteBuffer page, int offset) {
+            return page.getLong(offset);
+        }
+
+        @Override
+        public int compare(ByteBuffer page, int offset, Long key) {
+            return Long.compare(page.getLong(offset), key);
+        }
+    }
+}
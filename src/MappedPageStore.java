@@ -0,0 +1,159 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Page store over a memory-mapped file. The file is mapped in segments of
+ * many pages, so a pinned page is a view into the mapping and reading it
+ * copies nothing. Which pages stay in memory is left to the operating system's
+ * page cache, so pin and unpin only hand out and drop views.
+ *
+ * The mapping grows the file a whole segment at a time, and the file keeps
+ * that size: truncating it is not allowed while the segments are still
+ * mapped, and they stay mapped until they are garbage collected. The number of
+ * allocated pages is therefore kept in a header in front of the pages, which
+ * flush() and close() write. Pages allocated after the last flush are lost if
+ * the store is not closed cleanly.
+ */
+public class MappedPageStore implements PageStore {
+
+    private static final int SEGMENT_BYTES = 1 << 26;  // 64 MiB
+
+    // File header, in front of page 0
+    private static final int MAGIC = 0x4D505354;  // "MPST"
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_PAGE_SIZE = 4;
+    private static final int HEADER_PAGE_COUNT = 8;
+    private static final int HEADER_BYTES = 4096;
+
+    private final FileChannel channel;
+    private final int pageSize;
+    private final int pagesPerSegment;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private int pageCount;
+
+    /**
+     * Open the file, creating it if it does not exist.
+     *
+     * @param pageSize
+     *            the size of a page in bytes.
+     * @throws IllegalArgumentException
+     *             if the file is not a page store of this page size.
+     */
+    public MappedPageStore(Path file, int pageSize) throws IOException {
+        if (pageSize <= 0 || pageSize > SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Illegal page size: " + pageSize);
+        }
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.pageSize = pageSize;
+        this.pagesPerSegment = SEGMENT_BYTES / pageSize;
+        if (channel.size() == 0) {
+            this.pageCount = 0;
+            writeHeader();
+        } else {
+            this.pageCount = readHeader();
+        }
+    }
+
+    private int readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+        }
+        if (header.position() < HEADER_BYTES || header.getInt(HEADER_MAGIC) != MAGIC) {
+            channel.close();
+            throw new IllegalArgumentException("The file is not a page store");
+        }
+        if (header.getInt(HEADER_PAGE_SIZE) != pageSize) {
+            channel.close();
+            throw new IllegalArgumentException("The file has pages of " + header.getInt(HEADER_PAGE_SIZE) + " bytes");
+        }
+        return header.getInt(HEADER_PAGE_COUNT);
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(HEADER_MAGIC, MAGIC);
+        header.putInt(HEADER_PAGE_SIZE, pageSize);
+        header.putInt(HEADER_PAGE_COUNT, pageCount);
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    @Override
+    public int pageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public int pageCount() {
+        return pageCount;
+    }
+
+    @Override
+    public int allocate() {
+        int pageId = pageCount++;
+        ByteBuffer page = pin(pageId);
+        // The file may still hold an old page here if it was not closed cleanly
+        int i = 0;
+        for (; i + Long.BYTES <= pageSize; i += Long.BYTES) {
+            page.putLong(i, 0L);
+        }
+        for (; i < pageSize; i++) {
+            page.put(i, (byte) 0);
+        }
+        return pageId;
+    }
+
+    @Override
+    public ByteBuffer pin(int pageId) {
+        if (pageId < 0 || pageId >= pageCount) {
+            throw new IllegalArgumentException("No such page: " + pageId);
+        }
+
+        MappedByteBuffer segment = segment(pageId / pagesPerSegment);
+        int offset = (pageId % pagesPerSegment) * pageSize;
+        return segment.duplicate().position(offset).limit(offset + pageSize).slice();
+    }
+
+    @Override
+    public void unpin(int pageId, boolean dirty) {
+        // The mapping writes modified pages back by itself
+    }
+
+    private MappedByteBuffer segment(int index) {
+        while (segments.size() <= index) {
+            long position = HEADER_BYTES + (long) segments.size() * pagesPerSegment * pageSize;
+            try {
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, (long) pagesPerSegment * pageSize));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return segments.get(index);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        writeHeader();
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        segments.clear();
+        channel.close();
+    }
+}
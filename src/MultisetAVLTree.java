@@ -0,0 +1,195 @@
+import java.util.PrimitiveIterator;
+
+/**
+ * AVL tree that keeps one node per distinct value, with the number of copies
+ * of the value stored in the node. Inserting a value that is already there
+ * is a single search plus an increment, without allocating or rotating, so a
+ * few values repeated many times do not make the tree any higher.
+ *
+ * iterator(), getInorderIterator(), getPreorderIterator(), spliterator() and
+ * the streams return every copy of a value; only getDistinctIterator()
+ * returns each value once. join, split and the set operations move nodes
+ * with their counts, and union and intersection keep the count of this
+ * tree for the values both trees hold.
+ */
+public class MultisetAVLTree extends AVLTree {
+
+    protected class CountedNode extends Node {
+        protected int count = 1;
+
+        protected CountedNode(int val) {
+            super(val);
+        }
+    }
+
+    @Override
+    protected Node newNode(int value) {
+        return new CountedNode(value);
+    }
+
+    @Override
+    protected AVLTree newTree() {
+        return new MultisetAVLTree();
+    }
+
+    @Override
+    public void insert(int value) {
+        Node node = getNode(value);
+        if (node == null) {
+            super.insert(value);
+            return;
+        }
+
+        if (stats != null) {
+            stats.inserts++;
+        }
+        ((CountedNode) node).count++;
+    }
+
+    /**
+     * Remove one copy of the value. The node goes only with the last copy.
+     *
+     * @return true if the value was in the tree.
+     */
+    @Override
+    public boolean delete(int value) {
+        Node node = getNode(value);
+        if (node == null || getCount(node) == 1) {
+            return super.delete(value);
+        }
+
+        if (stats != null) {
+            stats.deletes++;
+        }
+        ((CountedNode) node).count--;
+        return true;
+    }
+
+    /**
+     * Like {@link AVLTree#join}, except that when the maximum of this tree
+     * equals the minimum of greater, the two nodes become one, holding the
+     * copies of both.
+     */
+    @Override
+    public void join(AVLTree greater) {
+        if (greater != this && greater instanceof MultisetAVLTree && root != null && greater.root != null) {
+            MultisetAVLTree other = (MultisetAVLTree) greater;
+            Node last = root;
+            while (last.right != null) {
+                last = last.right;
+            }
+            Node first = other.root;
+            while (first.left != null) {
+                first = first.left;
+            }
+
+            if (last.value == first.value) {
+                ((CountedNode) last).count += getCount(first);
+                other.root = other.deleteNode(other.root, first.value);
+                if (other.root != null) {
+                    other.root.parent = null;
+                }
+            }
+        }
+        super.join(greater);
+    }
+
+    /**
+     * @return the number of copies of the value in the tree.
+     */
+    public int count(int value) {
+        Node node = getNode(value);
+        return node == null ? 0 : getCount(node);
+    }
+
+    @Override
+    protected void moveValue(Node from, Node to) {
+        super.moveValue(from, to);
+        ((CountedNode) to).count = getCount(from);
+    }
+
+    @Override
+    protected int getCount(Node node) {
+        return ((CountedNode) node).count;
+    }
+
+    /**
+     * Iterate over every copy of every value in ascending order.
+     */
+    @Override
+    public PrimitiveIterator.OfInt getInorderIterator() {
+        return new ExpandingIterator(root);
+    }
+
+    /**
+     * Iterate over every copy of every value in pre-order, the copies of a
+     * value one after another.
+     */
+    @Override
+    public PrimitiveIterator.OfInt getPreorderIterator() {
+        return new ExpandingPreorderIterator(root);
+    }
+
+    /**
+     * Iterate over the distinct values in ascending order.
+     */
+    public PrimitiveIterator.OfInt getDistinctIterator() {
+        return new InorderIterator(root);
+    }
+
+    /**
+     * In-order iterator that returns the value of each node as many times as
+     * the node counts it.
+     */
+    public class ExpandingIterator extends InorderIterator {
+        private Node node = null;
+        private int remaining = 0;
+
+        public ExpandingIterator(Node root) {
+            super(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0 || super.hasNext();
+        }
+
+        @Override
+        public int nextInt() {
+            if (remaining == 0) {
+                node = advance();
+                remaining = getCount(node);
+            }
+            remaining--;
+            return node.value;
+        }
+    }
+
+    /**
+     * Pre-order iterator that returns the value of each node as many times as
+     * the node counts it.
+     */
+    public class ExpandingPreorderIterator extends PreorderIterator {
+        private Node node = null;
+        private int remaining = 0;
+
+        public ExpandingPreorderIterator(Node root) {
+            super(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0 || super.hasNext();
+        }
+
+        @Override
+        public int nextInt() {
+            if (remaining == 0) {
+                node = advance();
+                remaining = getCount(node);
+            }
+            remaining--;
+            return node.value;
+        }
+    }
+}
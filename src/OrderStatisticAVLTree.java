@@ -0,0 +1,93 @@
+/**
+ * AVL tree whose nodes also store the size of their subtree. The sizes are
+ * kept wherever the heights are, which are recomputed bottom-up by insertNode,
+ * deleteNode and the rotations. Rank and selection queries then follow a
+ * single root-to-leaf path instead of an in-order walk.
+ *
+ * Duplicates are kept as separate nodes, and count once each.
+ */
+public class OrderStatisticAVLTree extends AVLTree {
+
+    protected class SizedNode extends Node {
+        protected int size = 1;
+
+        protected SizedNode(int val) {
+            super(val);
+        }
+    }
+
+    @Override
+    protected Node newNode(int value) {
+        return new SizedNode(value);
+    }
+
+    @Override
+    protected AVLTree newTree() {
+        return new OrderStatisticAVLTree();
+    }
+
+    @Override
+    protected void updateHeight(Node n) {
+        super.updateHeight(n);
+        ((SizedNode) n).size = getSize(n.left) + getSize(n.right) + 1;
+    }
+
+    protected int getSize(Node node) {
+        return (node == null) ? 0 : ((SizedNode) node).size;
+    }
+
+    /**
+     * @return the number of values in the tree.
+     */
+    public int size() {
+        return getSize(root);
+    }
+
+    /**
+     * @return the number of values smaller than value, in O(log n).
+     */
+    public int rank(int value) {
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            if (node.value < value) {
+                rank += getSize(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @param k
+     *            a 0-based position in ascending order.
+     * @return the k-th smallest value, in O(log n).
+     */
+    public int select(int k) {
+        if (k < 0 || k >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + k + ", Size: " + size());
+        }
+
+        Node node = root;
+        while (true) {
+            int leftSize = getSize(node.left);
+            if (k < leftSize) {
+                node = node.left;
+            } else if (k == leftSize) {
+                return node.value;
+            } else {
+                k -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * @return the number of values v with low <= v < high, in O(log n).
+     */
+    public int countInRange(int low, int high) {
+        return low < high ? rank(high) - rank(low) : 0;
+    }
+}
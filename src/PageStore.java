@@ -0,0 +1,51 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Storage of fixed-size pages, addressed by page ids from 0 to
+ * pageCount() - 1.
+ *
+ * A page is accessed by pinning it, which returns a buffer over its pageSize()
+ * bytes with position 0. The buffer is valid until the page is unpinned, and
+ * every pin has to be matched by exactly one unpin. Stores that cache pages
+ * must not evict a pinned page.
+ */
+public interface PageStore extends Closeable {
+
+    int pageSize();
+
+    int pageCount();
+
+    /**
+     * Append a new zero-filled page.
+     *
+     * @return the id of the new page.
+     */
+    int allocate();
+
+    /**
+     * @throws IllegalArgumentException
+     *             if there is no page with this id.
+     * @throws java.io.UncheckedIOException
+     *             if the page cannot be read.
+     */
+    ByteBuffer pin(int pageId);
+
+    /**
+     * @param dirty
+     *            whether the page was modified while it was pinned.
+     */
+    void unpin(int pageId, boolean dirty);
+
+    /**
+     * Write every modified page to the file and force it to the device.
+     */
+    void flush() throws IOException;
+
+    /**
+     * Flush and release the file. The store cannot be used afterwards.
+     */
+    @Override
+    void close() throws IOException;
+}
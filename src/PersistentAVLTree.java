@@ -0,0 +1,223 @@
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * AVL tree whose nodes are never modified once created. An insert copies the
+ * nodes on the path from the root to the new leaf, plus the nodes a rotation
+ * rebuilds, and shares every other subtree with the previous version. O(log n)
+ * nodes are allocated per insert.
+ *
+ * Every insert publishes a new {@link Version}. A version never changes, so
+ * any number of threads can traverse it without locks while writers keep
+ * inserting. {@link #snapshot()} returns the latest version in O(1). Writers
+ * are serialized with each other.
+ *
+ * Nodes have no parent pointers, since a shared subtree can belong to many
+ * versions.
+ */
+public class PersistentAVLTree implements Iterable<Integer> {
+
+    private static final class Node {
+        final Node left;
+        final Node right;
+        final int height;
+        final int value;
+
+        Node(Node left, int value, Node right) {
+            this.left = left;
+            this.right = right;
+            this.value = value;
+            this.height = Math.max(getNodeHeight(left), getNodeHeight(right)) + 1;
+        }
+    }
+
+    private volatile Version current = new Version(null, 0);
+
+    /**
+     * Insert the value and publish the resulting version.
+     *
+     * @return the new version, which contains the value.
+     */
+    public synchronized Version insert(int value) {
+        Version previous = current;
+        Version next = new Version(insertNode(previous.root, value), previous.size + 1);
+        current = next;
+        return next;
+    }
+
+    /**
+     * @return the latest version, in O(1).
+     */
+    public Version snapshot() {
+        return current;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return snapshot().iterator();
+    }
+
+    private static Node insertNode(Node node, int value) {
+        /* 1.  Perform the normal BST search and insert, copying the path */
+        if (node == null) {
+            return new Node(null, value, null);
+        }
+
+        if (value < node.value) {
+            node = new Node(insertNode(node.left, value), node.value, node.right);
+        } else {
+            node = new Node(node.left, node.value, insertNode(node.right, value));
+        }
+
+        /* 2. Rebalance the copy if it became unbalanced */
+        int balance = getBalanceFactor(node);
+
+        // Left Cases
+        if (balance > 1) {
+            if (value >= node.left.value) {
+                node = new Node(leftRotate(node.left), node.value, node.right);
+            }
+
+            node = rightRotate(node);
+        } // Right Cases
+        else if (balance < -1) {
+            if (value < node.right.value) {
+                node = new Node(node.left, node.value, rightRotate(node.right));
+            }
+
+            node = leftRotate(node);
+        }
+
+        return node;
+    }
+
+    private static Node rightRotate(Node y) {
+        Node x = y.left;
+        return new Node(x.left, x.value, new Node(x.right, y.value, y.right));
+    }
+
+    private static Node leftRotate(Node x) {
+        Node y = x.right;
+        return new Node(new Node(x.left, x.value, y.left), y.value, y.right);
+    }
+
+    private static int getBalanceFactor(Node n) {
+        return n == null ? 0 : getNodeHeight(n.left) - getNodeHeight(n.right);
+    }
+
+    private static int getNodeHeight(Node node) {
+        return (node == null) ? 0 : node.height;
+    }
+
+    /**
+     * An immutable state of the tree.
+     */
+    public static final class Version implements Iterable<Integer> {
+        private final Node root;
+        private final int size;
+
+        private Version(Node root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int height() {
+            return getNodeHeight(root);
+        }
+
+        public boolean contains(int value) {
+            Node node = root;
+            while (node != null) {
+                if (value == node.value) {
+                    return true;
+                }
+                node = value < node.value ? node.left : node.right;
+            }
+            return false;
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt iterator() {
+            return getInorderIterator();
+        }
+
+        public PrimitiveIterator.OfInt getInorderIterator() {
+            return new InorderIterator(root);
+        }
+
+        public PrimitiveIterator.OfInt getPreorderIterator() {
+            return new PreorderIterator(root);
+        }
+    }
+
+    private abstract static class BaseBSTIterator implements PrimitiveIterator.OfInt {
+        protected final ArrayDeque<Node> stack;
+
+        BaseBSTIterator(Node root) {
+            stack = new ArrayDeque<>(getNodeHeight(root) + 1);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return advance().value;
+        }
+
+        abstract protected Node advance();
+    }
+
+    private static final class InorderIterator extends BaseBSTIterator {
+        InorderIterator(Node root) {
+            super(root);
+            pushLeftPath(root);
+        }
+
+        @Override
+        protected Node advance() {
+            Node node = stack.pop();
+            pushLeftPath(node.right);
+            return node;
+        }
+
+        private void pushLeftPath(Node node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+        }
+    }
+
+    private static final class PreorderIterator extends BaseBSTIterator {
+        PreorderIterator(Node root) {
+            super(root);
+            if (root != null) {
+                stack.push(root);
+            }
+        }
+
+        @Override
+        protected Node advance() {
+            Node node = stack.pop();
+            if (node.right != null) {
+                stack.push(node.right);
+            }
+            if (node.left != null) {
+                stack.push(node.left);
+            }
+            return node;
+        }
+    }
+}
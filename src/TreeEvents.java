@@ -0,0 +1,59 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder events for structural changes of the trees. They are
+ * committed whether or not a tree's statistics are enabled, and cost next to
+ * nothing when no recording has them enabled.
+ */
+final class TreeEvents {
+
+    private TreeEvents() {
+    }
+
+    @Name("ds.AVLRebalance")
+    @Label("AVL Rebalance")
+    @Category({"Data Structures", "AVL Tree"})
+    @Description("An unbalanced AVL subtree was fixed by rotations")
+    static final class AVLRebalance extends Event {
+        @Label("Imbalance")
+        String imbalance;
+
+        @Label("Subtree Height")
+        int subtreeHeight;
+    }
+
+    @Name("ds.BTreeSplit")
+    @Label("BTree Split")
+    @Category({"Data Structures", "BTree"})
+    @Description("A full BTree node was split in its median")
+    static final class BTreeSplit extends Event {
+        @Label("Leaf")
+        boolean leaf;
+
+        @Label("New Root")
+        @Description("Whether the split grew a new root")
+        boolean newRoot;
+    }
+
+    static void avlRebalance(ImbalanceCases imbalance, int subtreeHeight) {
+        AVLRebalance event = new AVLRebalance();
+        if (event.isEnabled()) {
+            event.imbalance = imbalance.name();
+            event.subtreeHeight = subtreeHeight;
+            event.commit();
+        }
+    }
+
+    static void bTreeSplit(boolean leaf, boolean newRoot) {
+        BTreeSplit event = new BTreeSplit();
+        if (event.isEnabled()) {
+            event.leaf = leaf;
+            event.newRoot = newRoot;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of tree operations. Every record gets the next sequence
+ * number, starting at the base sequence stored in the file header, so a
+ * snapshot can tell which records it already contains.
+ *
+ * Appends are collected in memory and written with a single fsync once
+ * groupCommitSize of them are pending, or when sync() is called. An append is
+ * durable only after the sync that follows it.
+ *
+ * Every record carries a CRC32. A record torn by a crash fails its check, and
+ * the log is truncated before it when it is opened.
+ *
+ * <pre>
+ * header: | magic (4) | base sequence (8) |
+ * record: | operation (1) | key | CRC32 of operation and key (4) |
+ * </pre>
+ */
+public class WriteAheadLog<T extends Comparable<T>> implements Closeable {
+
+    public static final byte INSERT = 1;
+    public static final byte REMOVE = 2;
+
+    private static final int MAGIC = 0x4257414c;  // "BWAL"
+    private static final int HEADER = 12;
+    private static final int READ_BATCH = 1 << 16;
+
+    /**
+     * Receives the records of the log when it is replayed.
+     */
+    public interface RecordHandler<T> {
+        void apply(byte operation, T key);
+    }
+
+    private final FileChannel channel;
+    private final KeyCodec<T> codec;
+    private final int recordSize;
+    private final int groupCommitSize;
+    private final ByteBuffer pending;
+    private final CRC32 crc = new CRC32();
+
+    private long baseSequence;
+    private long nextSequence;
+    private long end;  // file offset after the last record written
+
+    /**
+     * Open the log, creating it if it does not exist. A torn record at the
+     * end is cut off.
+     *
+     * @param groupCommitSize
+     *            the number of appends collected before they are written and
+     *            synced together.
+     */
+    public WriteAheadLog(Path file, KeyCodec<T> codec, int groupCommitSize) throws IOException {
+        if (groupCommitSize < 1) {
+            throw new IllegalArgumentException("Illegal group commit size: " + groupCommitSize);
+        }
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.codec = codec;
+        this.recordSize = 1 + codec.size() + Integer.BYTES;
+        this.groupCommitSize = groupCommitSize;
+        this.pending = ByteBuffer.allocate(groupCommitSize * recordSize);
+
+        if (channel.size() < HEADER) {
+            reset(0);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            readFully(header, 0);
+            if (header.getInt(0) != MAGIC) {
+                channel.close();
+                throw new IOException("Not a BTree write-ahead log: " + file);
+            }
+            baseSequence = header.getLong(4);
+
+            end = scan(Long.MAX_VALUE, null);
+            nextSequence = baseSequence + (end - HEADER) / recordSize;
+            channel.truncate(end);
+        }
+    }
+
+    /**
+     * @return the sequence number of the first record in the log.
+     */
+    public long baseSequence() {
+        return baseSequence;
+    }
+
+    /**
+     * @return the sequence number the next append will get.
+     */
+    public long nextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Log an operation. It is written and synced with the rest of its group.
+     */
+    public void append(byte operation, T key) throws IOException {
+        int offset = pending.position();
+        pending.put(offset, operation);
+        codec.write(pending, offset + 1, key);
+
+        crc.reset();
+        crc.update(pending.array(), offset, 1 + codec.size());
+        pending.putInt(offset + 1 + codec.size(), (int) crc.getValue());
+        pending.position(offset + recordSize);
+        nextSequence++;
+
+        if (!pending.hasRemaining()) {
+            sync();
+        }
+    }
+
+    /**
+     * Write the pending appends and force them to the device.
+     */
+    public void sync() throws IOException {
+        if (pending.position() == 0) {
+            return;
+        }
+
+        pending.flip();
+        while (pending.hasRemaining()) {
+            end += channel.write(pending, end);
+        }
+        pending.clear();
+        channel.force(false);
+    }
+
+    /**
+     * Feed every record from the given sequence number on to the handler, in
+     * the order they were appended. Pending appends are synced first.
+     */
+    public void replay(long fromSequence, RecordHandler<T> handler) throws IOException {
+        sync();
+        scan(fromSequence, handler);
+    }
+
+    /**
+     * Drop every record and start again at the given sequence number, once a
+     * snapshot holds the logged operations.
+     */
+    public void reset(long baseSequence) throws IOException {
+        pending.clear();
+        channel.truncate(0);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(0, MAGIC);
+        header.putLong(4, baseSequence);
+        channel.write(header, 0);
+        channel.force(false);
+
+        this.baseSequence = baseSequence;
+        this.nextSequence = baseSequence;
+        this.end = HEADER;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        channel.close();
+    }
+
+    /**
+     * Read the valid records in one sequential pass, handing the ones from
+     * fromSequence on to the handler if there is one.
+     *
+     * @return the file offset after the last valid record.
+     */
+    private long scan(long fromSequence, RecordHandler<T> handler) throws IOException {
+        int keySize = codec.size();
+        ByteBuffer batch = ByteBuffer.allocate((READ_BATCH / recordSize) * recordSize);
+        long position = HEADER;
+        long sequence = baseSequence;
+
+        while (true) {
+            batch.clear();
+            int read = readFully(batch, position);
+            int records = read / recordSize;
+
+            for (int i = 0; i < records; i++) {
+                int offset = i * recordSize;
+                crc.reset();
+                crc.update(batch.array(), offset, 1 + keySize);
+                if (batch.getInt(offset + 1 + keySize) != (int) crc.getValue()) {
+                    return position + offset;
+                }
+
+                if (handler != null && sequence >= fromSequence) {
+                    handler.apply(batch.get(offset), codec.read(batch, offset + 1));
+                }
+                sequence++;
+            }
+
+            position += (long) records * recordSize;
+            if (read < batch.capacity()) {
+                return position;
+            }
+        }
+    }
+
+    // Read until the buffer is full or the file ends
+    private int readFully(ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,145 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentBTreeTest {
+
+    private static final int WRITERS = 8;
+    private static final int READERS = 2;
+    private static final int KEYS_PER_WRITER = 20_000;
+
+    @Test
+    void writersAndReadersKeepTheTreeValid() throws Exception {
+        for (int order : new int[] {2, 3, 16}) {
+            stress(order);
+        }
+    }
+
+    /**
+     * The tree starts with the keys that are multiples of WRITERS + 1. Each
+     * writer then inserts its own residue class, while the readers keep
+     * checking that every initial key is found and that negative keys are not.
+     */
+    private static void stress(int order) throws Exception {
+        ConcurrentBTree<Integer> tree = new ConcurrentBTree<>(order);
+        int stride = WRITERS + 1;
+        for (int i = 0; i < KEYS_PER_WRITER; i++) {
+            tree.insert(i * stride);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        List<Future<?>> readers = new ArrayList<>();
+        try {
+            for (int w = 1; w <= WRITERS; w++) {
+                int residue = w;
+                writers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < KEYS_PER_WRITER; i++) {
+                        tree.insert(i * stride + residue);
+                    }
+                    return null;
+                }));
+            }
+            for (int r = 0; r < READERS; r++) {
+                int seed = r;
+                readers.add(pool.submit(() -> {
+                    start.await();
+                    int i = seed;
+                    while (writing.get()) {
+                        int key = (i % KEYS_PER_WRITER) * stride;
+                        if (!tree.contains(key)) {
+                            fail("initial key " + key + " not found");
+                        }
+                        if (tree.contains(-1 - key)) {
+                            fail("absent key " + (-1 - key) + " found");
+                        }
+                        i += 7;
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<?> reader : readers) {
+                reader.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            writing.set(false);
+            pool.shutdownNow();
+        }
+
+        int total = stride * KEYS_PER_WRITER;
+        assertEquals(total, tree.size());
+        assertEquals(total, checkNode(tree.root, order, true, null, null, depth(tree.root), 0));
+        for (int key = 0; key < total; key++) {
+            assertTrue(tree.contains(key), "key " + key);
+        }
+    }
+
+    private static int depth(ConcurrentBTree.Node<?> node) {
+        int depth = 0;
+        while (!node.leaf) {
+            node = node.children[0];
+            depth++;
+        }
+        return depth;
+    }
+
+    // The key arrays are Comparable[] at runtime, so read the keys one by one
+    private static Integer key(ConcurrentBTree.Node<?> node, int index) {
+        return (Integer) node.keys[index];
+    }
+
+    /**
+     * Check the B-Tree invariants of a subtree: keys are sorted and lie
+     * strictly between the bounds given by the parent, non-root nodes hold
+     * between order - 1 and 2 * order - 1 keys, and all leaves are at the same
+     * depth.
+     *
+     * @return the number of keys in the subtree.
+     */
+    private static int checkNode(ConcurrentBTree.Node<?> node, int order, boolean isRoot,
+            Integer low, Integer high, int leafDepth, int depth) {
+        int numOfKeys = node.numOfKeys;
+        assertTrue(numOfKeys <= 2 * order - 1, "overfull node");
+        if (!isRoot) {
+            assertTrue(numOfKeys >= order - 1, "underfull node");
+        }
+        for (int i = 0; i < numOfKeys; i++) {
+            int key = key(node, i);
+            assertTrue(low == null || key > low, "key below its bound");
+            assertTrue(high == null || key < high, "key above its bound");
+            assertTrue(i == 0 || key(node, i - 1) < key, "keys out of order");
+        }
+        if (node.leaf) {
+            assertEquals(leafDepth, depth, "leaves at different depths");
+            return numOfKeys;
+        }
+
+        int count = numOfKeys;
+        for (int i = 0; i <= numOfKeys; i++) {
+            Integer childLow = i == 0 ? low : key(node, i - 1);
+            Integer childHigh = i == numOfKeys ? high : key(node, i);
+            count += checkNode(node.children[i], order, false, childLow, childHigh, leafDepth, depth + 1);
+        }
+        return count;
+    }
+}
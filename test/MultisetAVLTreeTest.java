@@ -0,0 +1,70 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+class MultisetAVLTreeTest {
+
+    private static MultisetAVLTree of(int... values) {
+        MultisetAVLTree tree = new MultisetAVLTree();
+        for (int value : values) {
+            tree.insert(value);
+        }
+        return tree;
+    }
+
+    private static List<Integer> distinct(MultisetAVLTree tree) {
+        return values(tree.getDistinctIterator());
+    }
+
+    private static List<Integer> values(PrimitiveIterator.OfInt iterator) {
+        List<Integer> values = new ArrayList<>();
+        iterator.forEachRemaining((int value) -> values.add(value));
+        return values;
+    }
+
+    @Test
+    void traversalsRepeatEachValueByItsCount() {
+        MultisetAVLTree tree = of(4, 2, 4, 6, 2, 4);
+        List<Integer> expanded = List.of(2, 2, 4, 4, 4, 6);
+
+        assertEquals(expanded, values(tree.iterator()));
+        assertEquals(expanded, values(tree.getInorderIterator()));
+        assertEquals(expanded, tree.stream().collect(Collectors.toList()));
+        assertEquals(List.of(4, 4, 4, 2, 2, 6), values(tree.getPreorderIterator()));
+        assertEquals(List.of(2, 4, 6), values(tree.getDistinctIterator()));
+    }
+
+    @Test
+    void joinMergesEqualBoundaryNodes() {
+        MultisetAVLTree tree = of(1, 5, 5);
+        MultisetAVLTree greater = of(5, 9);
+
+        tree.join(greater);
+
+        assertEquals(List.of(1, 5, 5, 5, 9), tree.stream().collect(Collectors.toList()));
+        assertEquals(List.of(1, 5, 9), distinct(tree));
+        assertEquals(3, tree.count(5));
+        assertEquals(0, greater.count(5));
+
+        tree.delete(5);
+        tree.insert(5);
+        tree.delete(5);
+        assertEquals(2, tree.count(5));
+        assertEquals(List.of(1, 5, 9), distinct(tree));
+    }
+
+    @Test
+    void joinWithoutEqualBoundaryKeepsCounts() {
+        MultisetAVLTree tree = of(1, 1, 3);
+        tree.join(of(4, 4, 4));
+
+        assertEquals(2, tree.count(1));
+        assertEquals(3, tree.count(4));
+        assertEquals(List.of(1, 3, 4), distinct(tree));
+    }
+}